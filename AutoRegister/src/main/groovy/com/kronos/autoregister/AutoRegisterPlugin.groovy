@@ -11,7 +11,7 @@ class AutoRegisterPlugin implements Plugin<Project> {
     void apply(Project project) {
         boolean isApp = project.getPlugins().hasPlugin(AppPlugin.class)
         if (isApp) {
-            project.android.registerTransform(new NewAutoRegisterTransform())
+            project.android.registerTransform(new NewAutoRegisterTransform(project))
         }
     }
 }
\ No newline at end of file
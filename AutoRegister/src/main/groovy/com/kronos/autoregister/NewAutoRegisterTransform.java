@@ -9,6 +9,7 @@ import com.android.build.api.transform.TransformInvocation;
 import com.android.build.api.transform.TransformOutputProvider;
 import com.android.build.gradle.internal.pipeline.TransformManager;
 import com.google.common.collect.ImmutableSet;
+import com.kronos.autoregister.helper.BaselineProfileWriter;
 import com.kronos.autoregister.helper.ClassFilterVisitor;
 import com.kronos.autoregister.helper.Log;
 import com.kronos.autoregister.helper.TryCatchMethodVisitor;
@@ -19,6 +20,7 @@ import com.kronos.plugin.base.TransformCallBack;
 
 import org.apache.commons.compress.utils.IOUtils;
 import org.apache.commons.io.FileUtils;
+import org.gradle.api.Project;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
@@ -36,6 +38,12 @@ import java.util.HashSet;
 import java.util.Set;
 
 public class NewAutoRegisterTransform extends Transform {
+    private final Project project;
+
+    public NewAutoRegisterTransform(Project project) {
+        this.project = project;
+    }
+
     @Override
     public String getName() {
         return "auto_register";
@@ -85,18 +93,39 @@ public class NewAutoRegisterTransform extends Transform {
         TransformOutputProvider outputProvider = transformInvocation.getOutputProvider();
         File dest = outputProvider.getContentLocation("kronos_router", TransformManager.CONTENT_CLASS,
                 ImmutableSet.of(QualifiedContent.Scope.PROJECT), Format.DIRECTORY);
-        generateInitClass(dest.getAbsolutePath(), items, deleteItems);
+        File registry = generateInitClass(dest.getAbsolutePath(), items, deleteItems);
+        writeBaselineProfile(registry, transformInvocation.getContext().getVariantName());
+    }
+
+    /**
+     * 生成的RouterRegistry和RouterInit_*不在任何aar的baseline-prof.txt里，单独写一份到
+     * build/outputs/router/变体名/baseline-prof.txt，可以合并进app的src/main/baseline-prof.txt
+     */
+    private void writeBaselineProfile(File registry, String variantName) {
+        if (!registry.exists()) {
+            return;
+        }
+        File output = new File(project.getBuildDir(), "outputs/router/" + variantName + "/baseline-prof.txt");
+        try {
+            BaselineProfileWriter.write(registry, Constant.REGISTER_CLASS_CONST.replace('.', '/'), output);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
     }
 
     static boolean checkClassName(String className) {
         if (className.contains("R\\$") || className.endsWith("R") || className.endsWith("BuildConfig")) {
             return false;
         }
+        // RouterInit里生成的回调工厂等内部类没有init方法
+        if (className.contains("$")) {
+            return false;
+        }
         String packageList = "com.kronos.router.init";
         return className.contains(packageList);
     }
 
-    private void generateInitClass(String directory, HashSet<String> items, HashSet<String> deleteItems) {
+    private File generateInitClass(String directory, HashSet<String> items, HashSet<String> deleteItems) {
         String className = Constant.REGISTER_CLASS_CONST.replace('.', '/');
         File dest = new File(directory, className + SdkConstants.DOT_CLASS);
         if (!dest.exists()) {
@@ -129,6 +158,7 @@ public class NewAutoRegisterTransform extends Transform {
                 e.printStackTrace();
             }
         }
+        return dest;
     }
 
     private void modifyClass(File file, HashSet<String> items, HashSet<String> deleteItems) throws IOException {
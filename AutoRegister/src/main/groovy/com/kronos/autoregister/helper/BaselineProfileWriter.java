@@ -0,0 +1,60 @@
+package com.kronos.autoregister.helper;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 从最终的RouterRegistry.register()里读出调用了哪些RouterInit_*，写成baseline profile规则
+ * <p>
+ * 增量编译时transform只看得到改动的类，所以不能用扫描结果，要以插桩之后的register方法为准
+ */
+public class BaselineProfileWriter {
+
+    public static Set<String> registeredModules(byte[] registryClass) {
+        final Set<String> owners = new LinkedHashSet<>();
+        new ClassReader(registryClass).accept(new ClassVisitor(Opcodes.ASM5) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                if (!"register".equals(name) || !"()V".equals(desc)) {
+                    return null;
+                }
+                return new MethodVisitor(Opcodes.ASM5) {
+                    @Override
+                    public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+                        if (opcode == Opcodes.INVOKESTATIC && "init".equals(name)) {
+                            owners.add(owner);
+                        }
+                    }
+                };
+            }
+        }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return owners;
+    }
+
+    public static void write(File registryClass, String registryName, File output) throws IOException {
+        Set<String> modules = registeredModules(Files.readAllBytes(registryClass.toPath()));
+        output.getParentFile().mkdirs();
+        try (PrintWriter writer = new PrintWriter(output, "UTF-8")) {
+            writer.println("# generated by router-register, do not edit");
+            writer.println("HSPL" + registryName + ";->register()V");
+            for (String module : modules) {
+                // init和它拆出来的routes方法都在启动时执行一次
+                writer.println("HSPL" + module + ";->**(**)**");
+            }
+            writer.println("L" + registryName + ";");
+            for (String module : modules) {
+                writer.println("L" + module + ";");
+            }
+        }
+        Log.info("baseline profile: " + output.getAbsolutePath() + " modules:" + modules);
+    }
+}
@@ -13,4 +13,10 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface   BindModule {
     String value();
+
+    /**
+     * 只在这些进程里注册路由，为空时所有进程都注册
+     * ":push"表示包名加后缀的子进程，""表示主进程，其余按完整进程名匹配
+     */
+    String[] processes() default {};
 }
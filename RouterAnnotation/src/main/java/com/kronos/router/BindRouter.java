@@ -18,4 +18,9 @@ public @interface BindRouter {
     boolean isRunnable() default false;
 
     int weight() default 0;
+
+    /**
+     * isRunnable的回调第一次使用时才会创建，为true时创建后会缓存复用
+     */
+    boolean singleton() default true;
 }
@@ -0,0 +1,16 @@
+package com.kronos.router;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记需要从路由参数中注入的字段，字段不能是private的
+ * value为空时使用字段名作为key
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.CLASS)
+public @interface RouterParam {
+    String value() default "";
+}
@@ -0,0 +1,11 @@
+package com.kronos.router
+
+import android.net.Uri
+
+/**
+ * RouterDispatchActivity是exported的，任何app都能用显式Intent拉起它，绕过intent-filter
+ * 在open之前判断外部传入的uri能不能打开，返回false时不会打开任何页面
+ */
+interface DispatchFilter {
+    fun accept(uri: Uri): Boolean
+}
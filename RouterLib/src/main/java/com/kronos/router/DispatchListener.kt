@@ -0,0 +1,10 @@
+package com.kronos.router
+
+import android.net.Uri
+
+/**
+ * RouterDispatchActivity转发完成后在主线程回调，costNanos是从onCreate开始到目标页面startActivity返回的耗时
+ */
+interface DispatchListener {
+    fun onDispatched(uri: Uri?, costNanos: Long, error: Throwable?)
+}
@@ -0,0 +1,34 @@
+package com.kronos.router
+
+/**
+ * 第一次run的时候才通过工厂创建真正的回调，singleton为true时缓存创建出来的实例
+ *
+ * @param targetClassName 工厂创建的回调类名，预热时只加载这个类，不创建实例
+ */
+class LazyRouterCallback @JvmOverloads constructor(val factory: RouterCallbackFactory, val singleton: Boolean,
+                                                   val targetClassName: String? = null) : RouterCallback {
+
+    @Volatile
+    private var instance: RouterCallback? = null
+
+    override fun run(context: RouterContext) {
+        get().run(context)
+    }
+
+    fun get(): RouterCallback {
+        if (!singleton) {
+            return factory.create()
+        }
+        var callback = instance
+        if (callback == null) {
+            synchronized(this) {
+                callback = instance
+                if (callback == null) {
+                    callback = factory.create()
+                    instance = callback
+                }
+            }
+        }
+        return callback!!
+    }
+}
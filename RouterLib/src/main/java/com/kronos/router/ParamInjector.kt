@@ -0,0 +1,10 @@
+package com.kronos.router
+
+import android.os.Bundle
+
+/**
+ * 由RouterProcessor为带有[RouterParam]字段的类生成
+ */
+interface ParamInjector<T> {
+    fun inject(target: T, bundle: Bundle)
+}
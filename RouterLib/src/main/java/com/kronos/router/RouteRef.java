@@ -0,0 +1,158 @@
+package com.kronos.router;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 编译期生成的路由引用，模板已经在编译时拆成了字面量和参数
+ * <p>
+ * 拼url时直接往复用的StringBuilder里写，Router.open(RouteRef, ...)可以跳过url解析直接查路由表
+ */
+public final class RouteRef {
+    private static final ThreadLocal<StringBuilder> BUILDER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(128);
+        }
+    };
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String template;
+    private final String host;
+    private final String path;
+    // literals比params多一个，url = literals[0] + params[0] + literals[1] + ...
+    private final String[] literals;
+    private final String[] params;
+
+    public RouteRef(String template, String host, String path, String[] literals, String[] params) {
+        this.template = template;
+        this.host = host;
+        this.path = path;
+        this.literals = literals;
+        this.params = params;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String[] getParamNames() {
+        return params.clone();
+    }
+
+    /**
+     * 路径参数填进模板，其余参数拼成query
+     */
+    public String build(Map<String, ?> args) {
+        return appendTo(builder(), args).toString();
+    }
+
+    public StringBuilder appendTo(StringBuilder out, Map<String, ?> args) {
+        out.append(literals[0]);
+        for (int i = 0; i < params.length; i++) {
+            Object value = args != null ? args.get(params[i]) : null;
+            if (value == null) {
+                throw new IllegalArgumentException("Missing param " + params[i] + " for " + template);
+            }
+            appendSegment(out, String.valueOf(value));
+            out.append(literals[i + 1]);
+        }
+        if (args == null || args.size() == 0) {
+            return out;
+        }
+        boolean hasQuery = template.indexOf('?') >= 0;
+        for (Map.Entry<String, ?> entry : args.entrySet()) {
+            if (entry.getValue() == null || isPathParam(entry.getKey())) {
+                continue;
+            }
+            out.append(hasQuery ? '&' : '?');
+            hasQuery = true;
+            appendSegment(out, entry.getKey());
+            out.append('=');
+            appendSegment(out, String.valueOf(entry.getValue()));
+        }
+        return out;
+    }
+
+    private boolean isPathParam(String name) {
+        for (String param : params) {
+            if (param.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 当前线程复用的StringBuilder，生成的url方法都写到这里
+     */
+    public static StringBuilder builder() {
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        return builder;
+    }
+
+    /**
+     * 和Uri.encode一样只保留unreserved字符，其余按UTF-8转成%XX
+     */
+    public static StringBuilder appendSegment(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~') {
+                out.append(c);
+            } else if (c < 0x80) {
+                appendEscaped(out, c);
+            } else if (c < 0x800) {
+                appendEscaped(out, 0xC0 | (c >> 6));
+                appendEscaped(out, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendEscaped(out, 0xF0 | (codePoint >> 18));
+                appendEscaped(out, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendEscaped(out, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendEscaped(out, 0x80 | (codePoint & 0x3F));
+            } else {
+                appendEscaped(out, 0xE0 | (c >> 12));
+                appendEscaped(out, 0x80 | ((c >> 6) & 0x3F));
+                appendEscaped(out, 0x80 | (c & 0x3F));
+            }
+        }
+        return out;
+    }
+
+    private static void appendEscaped(StringBuilder out, int b) {
+        out.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RouteRef routeRef = (RouteRef) o;
+        return template.equals(routeRef.template);
+    }
+
+    @Override
+    public int hashCode() {
+        return template.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "RouteRef{" + template + ", params=" + Arrays.toString(params) + "}";
+    }
+}
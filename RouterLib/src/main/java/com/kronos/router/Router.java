@@ -12,19 +12,49 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import com.kronos.router.exception.ContextNotProvided;
+import com.kronos.router.coalesce.NavigationCoalescer;
+import com.kronos.router.event.DropPolicy;
+import com.kronos.router.event.NavigationEvent;
+import com.kronos.router.event.NavigationEvents;
+import com.kronos.router.event.NavigationListener;
+import com.kronos.router.exception.RouteNotFoundException;
+import com.kronos.router.interceptor.Interceptor;
+import com.kronos.router.interceptor.InterceptorScope;
 import com.kronos.router.interceptor.RealCall;
 import com.kronos.router.loader.RouterRegistry;
 import com.kronos.router.model.HostParams;
+import com.kronos.router.model.ParamMap;
+import com.kronos.router.model.RouteOverride;
+import com.kronos.router.model.RouterCacheStats;
+import com.kronos.router.model.RouterMemoryStats;
 import com.kronos.router.model.RouterOptions;
 import com.kronos.router.model.RouterParams;
-
+import com.kronos.router.model.SegmentPool;
+import com.kronos.router.module.ModuleLoader;
+import com.kronos.router.override.RouteOverrides;
+import com.kronos.router.prewarm.HotRoutes;
+import com.kronos.router.snapshot.RouteSnapshot;
+import com.kronos.router.utils.RouterUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Router {
 
-    private static Router _router;
+    private static volatile Router _router;
 
     public static Router sharedRouter() {  // 第一次检查
         if (_router == null) {
@@ -39,23 +69,175 @@ public class Router {
     }
 
 
+    private static final String ROUTE_OVERRIDE_FILE = "router/route_overrides.json";
+    private static final int MAX_REDIRECTS = 5;
+
     private Application application;
-    private final Map<String, HostParams> hosts = new HashMap<>();
-    private RealCall realCall;
+    private volatile Map<String, HostParams> hosts = new ConcurrentHashMap<>();
+    private final RealCall realCall;
+    private final ModuleLoader moduleLoader = new ModuleLoader();
+    private volatile ExecutorService initExecutor;
+    private final RouteOverrides routeOverrides = new RouteOverrides();
+    private volatile NavigationEvents navigationEvents;
+    private volatile NavigationCoalescer navigationCoalescer;
+    // 写时复制，resolve时不加锁直接读
+    private volatile RouterScope[] scopes = new RouterScope[0];
+    private volatile int routeTableVersion;
+    private String snapshotBuildId;
+    private int prewarmTopN;
 
     private Router() {
         realCall = new RealCall(hosts);
     }
 
-    public void attachApplication(Application context) {
-        RouterRegistry.register();
+    public Application getApplication() {
+        return application;
+    }
+
+    /**
+     * 需要在attachApplication之前调用，buildId变化时快照会失效，建议使用git提交号之类的值
+     */
+    public void enableRouteSnapshot(String buildId) {
+        this.snapshotBuildId = buildId;
+    }
+
+    /**
+     * 需要在attachApplication之前调用，记录最常打开的topN个路由，下次启动后在后台预热
+     */
+    public void enableRoutePrewarm(int topN) {
+        this.prewarmTopN = topN;
+    }
+
+    /**
+     * 需要在attachApplication之前调用，各模块的RouterInit会在线程池里并行执行
+     * open的url所属的模块还没初始化完时，只会等待这一个模块
+     */
+    public void enableParallelInit(Executor executor) {
+        moduleLoader.setExecutor(executor);
+    }
+
+    /**
+     * 使用内部的守护线程池，所有模块合并完成后关闭
+     */
+    public void enableParallelInit() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        final AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "router-init-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        initExecutor = executor;
+        enableParallelInit(executor);
+    }
+
+    /**
+     * 之后注册的模块直接在调用线程执行
+     */
+    private void shutdownInitExecutor() {
+        ExecutorService executor = initExecutor;
+        if (executor != null) {
+            initExecutor = null;
+            moduleLoader.setExecutor(null);
+            executor.shutdown();
+        }
+    }
+
+    public void attachApplication(final Application context) {
         this.application = context;
+        final RouteSnapshot snapshot = snapshotBuildId != null ? RouteSnapshot.create(context, snapshotBuildId) : null;
+        if (snapshot != null) {
+            Map<String, HostParams> table = snapshot.load();
+            if (table != null) {
+                publishSnapshot(table);
+                shutdownInitExecutor();
+                startPrewarm(context);
+                return;
+            }
+        }
+        RouterRegistry.register();
+        moduleLoader.whenIdle(new Runnable() {
+            @Override
+            public void run() {
+                shutdownInitExecutor();
+                // 失败模块的路由不在表里，保存之后下次启动会跳过注册，一直缺这些路由
+                if (snapshot != null && !moduleLoader.hasFailures()) {
+                    synchronized (Router.this) {
+                        // 覆盖过的路由写原始配置，否则删掉覆盖之后下次启动还会用覆盖的目标
+                        snapshot.saveAsync(hosts, routeOverrides.overriddenRoutes());
+                    }
+                }
+                startPrewarm(context);
+            }
+        });
+    }
+
+    private void startPrewarm(Application context) {
+        if (prewarmTopN > 0) {
+            new HotRoutes(context, prewarmTopN, new HotRoutes.TableProvider() {
+                @Override
+                public Map<String, HostParams> getHosts() {
+                    return hosts;
+                }
+            }).start();
+        }
+    }
+
+    /**
+     * 生成的RouterInit调用，hosts是这个模块注册的所有host
+     */
+    public static void registerModule(String name, String[] hosts, Runnable routes) {
+        final Router router = sharedRouter();
+        router.moduleLoader.load(name, hosts, routes, new ModuleLoader.TableMerger() {
+            @Override
+            public void merge(Map<String, HostParams> staged) {
+                router.mergeModule(staged);
+            }
+        });
+    }
+
+    /**
+     * 每个host合并成一份新的HostParams再整体替换
+     */
+    private synchronized void mergeModule(Map<String, HostParams> staged) {
+        for (HostParams stagedHost : staged.values()) {
+            stagedHost.flush();
+            HostParams existing = hosts.get(stagedHost.getHost());
+            if (existing == null) {
+                hosts.put(stagedHost.getHost(), stagedHost);
+                continue;
+            }
+            HostParams merged = existing.copy();
+            merged.setRoutes(stagedHost.getEntries());
+            hosts.put(merged.getHost(), merged);
+        }
+    }
+
+    private synchronized void publishSnapshot(Map<String, HostParams> table) {
+        // attach之前手动map的路由保留下来
+        for (HostParams hostParams : hosts.values()) {
+            HostParams target = table.get(hostParams.getHost());
+            if (target == null) {
+                table.put(hostParams.getHost(), hostParams);
+                continue;
+            }
+            target.setRoutes(hostParams.getEntries());
+        }
+        hosts = new ConcurrentHashMap<>(table);
+        realCall.setHostMap(hosts);
     }
 
     public static void map(String url, RouterCallback callback) {
         RouterOptions options = new RouterOptions();
         options.setCallback(callback);
-        map(url, null, options);
+        addRoute(url, options);
+    }
+
+    public static void map(String url, RouterCallbackFactory factory, boolean singleton) {
+        map(url, new LazyRouterCallback(factory, singleton));
     }
 
     public static void map(String url, Class<? extends Activity> mClass) {
@@ -79,16 +261,215 @@ public class Router {
         if (options == null) {
             options = new RouterOptions();
         }
-        Uri uri = Uri.parse(url);
         options.setOpenClass(mClass);
-        HostParams hostParams;
-        if (sharedRouter().hosts.containsKey(uri.getHost())) {
-            hostParams = sharedRouter().hosts.get(uri.getHost());
-        } else {
-            hostParams = new HostParams(uri.getHost());
-            sharedRouter().hosts.put(hostParams.getHost(), hostParams);
+        addRoute(url, options);
+    }
+
+    public static void map(String url, String activityName) {
+        map(url, activityName, new RouterOptions());
+    }
+
+    /**
+     * 只记录Activity类名，第一次真正用到时才会加载类
+     */
+    public static void map(String url, String activityName, RouterOptions options) {
+        if (options == null) {
+            options = new RouterOptions();
+        }
+        options.setOpenClassName(activityName);
+        addRoute(url, options);
+    }
+
+    private static void addRoute(String url, RouterOptions options) {
+        Uri uri = Uri.parse(url);
+        String host = RouterUtils.hostOf(uri);
+        Map<String, HostParams> staged = ModuleLoader.stagingTable();
+        if (staged != null) {
+            // 初始化模块时先写到临时表，模块完成后统一合并
+            HostParams hostParams = staged.get(host);
+            if (hostParams == null) {
+                hostParams = new HostParams(host);
+                staged.put(host, hostParams);
+            }
+            hostParams.stageRoute(uri.getPath(), options);
+            return;
+        }
+        Router router = sharedRouter();
+        synchronized (router) {
+            HostParams hostParams;
+            if (router.hosts.containsKey(host)) {
+                hostParams = router.hosts.get(host);
+            } else {
+                hostParams = new HostParams(host);
+                router.hosts.put(hostParams.getHost(), hostParams);
+            }
+            hostParams.setRoute(uri.getPath(), options);
         }
-        hostParams.setRoute(uri.getPath(), options);
+    }
+
+    /**
+     * 读取 files/router/route_overrides.json，文件不存在时返回false
+     */
+    public boolean loadRouteOverrides() throws IOException {
+        File file = new File(application.getFilesDir(), ROUTE_OVERRIDE_FILE);
+        if (!file.exists()) {
+            return false;
+        }
+        applyRouteOverrides(file);
+        return true;
+    }
+
+    public void applyRouteOverrides(File file) throws IOException {
+        applyRouteOverrides(RouteOverrides.parse(file));
+    }
+
+    /**
+     * 和当前生效的覆盖做diff，只拷贝受影响的host，然后整体替换路由表并清掉这些host的缓存
+     * 传入空列表会恢复所有被覆盖的路由
+     *
+     * @return 生效后的路由表版本
+     */
+    public synchronized int applyRouteOverrides(List<RouteOverride> overrides) {
+        // 先在副本上算好新的路由表和覆盖记录，出错时什么都不会改变
+        RouteOverrides.Plan plan = routeOverrides.plan(hosts, overrides);
+        if (plan.getAffectedHosts().isEmpty()) {
+            return routeTableVersion;
+        }
+        hosts = plan.getTable();
+        realCall.setHostMap(plan.getTable());
+        routeOverrides.commit(plan);
+        realCall.invalidateHosts(plan.getAffectedHosts());
+        return ++routeTableVersion;
+    }
+
+    public int getRouteTableVersion() {
+        return routeTableVersion;
+    }
+
+    /**
+     * 只对scope范围内的路由生效，每个路由命中哪些拦截器只会计算一次
+     */
+    public void addInterceptor(InterceptorScope scope, Interceptor interceptor) {
+        realCall.addInterceptor(scope, interceptor);
+    }
+
+    /**
+     * 同名的scope会被替换，只复制scope数组，和路由数量无关
+     */
+    public synchronized void attachScope(RouterScope scope) {
+        RouterScope[] current = scopes;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].getName().equals(scope.getName())) {
+                RouterScope[] replaced = current.clone();
+                replaced[i] = scope;
+                scopes = replaced;
+                if (current[i] != scope) {
+                    current[i].clear();
+                }
+                return;
+            }
+        }
+        RouterScope[] added = Arrays.copyOf(current, current.length + 1);
+        added[current.length] = scope;
+        scopes = added;
+    }
+
+    /**
+     * 移除scope并释放它的路由和缓存，返回被移除的scope，不存在时返回null
+     */
+    @Nullable
+    public synchronized RouterScope detachScope(String name) {
+        RouterScope[] current = scopes;
+        for (int i = 0; i < current.length; i++) {
+            RouterScope scope = current[i];
+            if (scope.getName().equals(name)) {
+                RouterScope[] removed = new RouterScope[current.length - 1];
+                System.arraycopy(current, 0, removed, 0, i);
+                System.arraycopy(current, i + 1, removed, i, current.length - i - 1);
+                scopes = removed;
+                scope.clear();
+                return scope;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    public RouterScope getScope(String name) {
+        for (RouterScope scope : scopes) {
+            if (scope.getName().equals(name)) {
+                return scope;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 导航事件写入容量为capacity的无锁环形缓冲区，由后台线程分发给监听，满了按policy丢弃
+     */
+    public synchronized void enableNavigationEvents(int capacity, DropPolicy policy) {
+        if (navigationEvents == null) {
+            navigationEvents = new NavigationEvents(capacity, policy);
+        }
+    }
+
+    /**
+     * 窗口内重复打开同一个url(或者同一个路由模板)时只打开第一次，intentFor等不受影响
+     */
+    public void enableNavigationCoalescing(long windowMillis, NavigationCoalescer.Key key) {
+        navigationCoalescer = new NavigationCoalescer(windowMillis, key);
+    }
+
+    public void disableNavigationCoalescing() {
+        navigationCoalescer = null;
+    }
+
+    /**
+     * 没有开启去重时为null
+     */
+    @Nullable
+    public NavigationCoalescer getNavigationCoalescer() {
+        return navigationCoalescer;
+    }
+
+    public NavigationEvents getNavigationEvents() {
+        enableNavigationEvents(NavigationEvents.DEFAULT_CAPACITY, DropPolicy.DROP_OLDEST);
+        return navigationEvents;
+    }
+
+    public void addNavigationListener(NavigationListener listener) {
+        getNavigationEvents().addListener(listener);
+    }
+
+    public void removeNavigationListener(NavigationListener listener) {
+        NavigationEvents events = navigationEvents;
+        if (events != null) {
+            events.removeListener(listener);
+        }
+    }
+
+    /**
+     * 估算路由表每个host以及路由缓存占用的内存
+     */
+    public RouterMemoryStats memoryStats() {
+        Map<String, Long> hostBytes = new LinkedHashMap<>();
+        for (HostParams hostParams : hosts.values()) {
+            hostBytes.put(hostParams.getHost(), hostParams.estimateBytes());
+        }
+        Map<String, Long> cacheBytes = new LinkedHashMap<>();
+        cacheBytes.put("routes", realCall.estimateCacheBytes());
+        for (RouterScope scope : scopes) {
+            hostBytes.put("scope:" + scope.getName(), scope.estimateRouteBytes());
+            cacheBytes.put("scope:" + scope.getName(), scope.estimateCacheBytes());
+        }
+        return new RouterMemoryStats(hostBytes, SegmentPool.estimateBytes(), cacheBytes);
+    }
+
+    /**
+     * 路由缓存从启动到现在的累计命中次数，需要区间值时两次结果相减
+     */
+    public RouterCacheStats cacheStats() {
+        return realCall.cacheStats();
     }
 
 
@@ -135,10 +516,186 @@ public class Router {
         if (context == null) {
             throw new ContextNotProvided("You need to supply a context for Router " + this.toString());
         }
-        RouterParams params = realCall.open(url);
+        open(url, null, null, null, extras, context);
+    }
+
+    public void open(Uri uri) {
+        this.open(uri, null, this.application);
+    }
+
+    public void open(Uri uri, Context context) {
+        this.open(uri, null, context);
+    }
+
+    /**
+     * 直接用已经解析好的Uri匹配路由，不再把url转成字符串之后重新解析
+     */
+    public void open(Uri uri, Bundle extras, Context context) {
+        if (context == null) {
+            throw new ContextNotProvided("You need to supply a context for Router " + this.toString());
+        }
+        open(uri.toString(), uri, null, null, extras, context);
+    }
+
+    public void open(Intent intent) {
+        this.open(intent, this.application);
+    }
+
+    /**
+     * 转发外部拉起的ACTION_VIEW，data作为路由url，intent里的extras原样带给目标页面
+     */
+    public void open(Intent intent, Context context) {
+        Uri uri = intent.getData();
+        if (uri == null) {
+            throw new RouteNotFoundException("No data uri found in intent " + intent);
+        }
+        open(uri, intent.getExtras(), context);
+    }
+
+    public void open(RouteRef ref, Map<String, ?> args) {
+        this.open(ref, args, null, this.application);
+    }
+
+    public void open(RouteRef ref, Map<String, ?> args, Context context) {
+        this.open(ref, args, null, context);
+    }
+
+    /**
+     * 生成的RouteRef已经知道host和模板，不需要再解析url和逐个匹配路由
+     */
+    public void open(RouteRef ref, Map<String, ?> args, Bundle extras, Context context) {
+        if (context == null) {
+            throw new ContextNotProvided("You need to supply a context for Router " + this.toString());
+        }
+        open(null, null, ref, args, extras, context);
+    }
+
+    /**
+     * url和ref二选一，uri是url解析过的结果，没有时为null；没有开启导航事件和去重时直接解析打开
+     */
+    private void open(String url, Uri uri, RouteRef ref, Map<String, ?> args, Bundle extras, Context context) {
+        NavigationEvents events = navigationEvents;
+        boolean record = events != null && events.hasListeners();
+        NavigationCoalescer coalescer = navigationCoalescer;
+        if (!record && coalescer == null) {
+            open(ref != null ? resolve(ref, args) : resolve(url, uri), extras, context);
+            return;
+        }
+        long start = System.nanoTime();
+        // 通过去重之后记下的key，失败时要还回去
+        String coalesceKey = null;
+        if (coalescer != null && coalescer.getKey() == NavigationCoalescer.Key.URL) {
+            if (url == null) {
+                url = ref.build(args);
+            }
+            if (!coalescer.tryOpen(url, start)) {
+                if (record) {
+                    events.publish(NavigationEvent.coalesced(url, null, System.nanoTime() - start));
+                }
+                return;
+            }
+            coalesceKey = url;
+        }
+        RouterParams params = null;
+        try {
+            params = ref != null ? resolve(ref, args) : resolve(url, uri);
+            if (coalescer != null && coalescer.getKey() == NavigationCoalescer.Key.TEMPLATE) {
+                String template = params.getHost() + params.getUrl();
+                if (!coalescer.tryOpen(template, start)) {
+                    if (record) {
+                        events.publish(NavigationEvent.coalesced(eventUrl(url, ref, params), params,
+                                System.nanoTime() - start));
+                    }
+                    return;
+                }
+                coalesceKey = template;
+            }
+            open(params, extras, context);
+        } catch (RuntimeException e) {
+            if (coalesceKey != null) {
+                coalescer.release(coalesceKey, start);
+            }
+            if (record) {
+                events.publish(NavigationEvent.of(eventUrl(url, ref, params), params, System.nanoTime() - start, e));
+            }
+            throw e;
+        }
+        if (record) {
+            events.publish(NavigationEvent.of(eventUrl(url, ref, params), params, System.nanoTime() - start, null));
+        }
+    }
+
+    private static String eventUrl(String url, RouteRef ref, RouterParams params) {
+        if (url != null) {
+            return url;
+        }
+        return params != null ? params.getOpenParams().get(ParamMap.TARGET_URL) : ref.getTemplate();
+    }
+
+    public void openStack(List<String> urls) {
+        this.openStack(urls, null, this.application);
+    }
+
+    public void openStack(List<String> urls, Context context) {
+        this.openStack(urls, null, context);
+    }
+
+    /**
+     * 一次解析所有url并通过一次startActivities打开，最后一个是栈顶，extras只给栈顶页面
+     * <p>
+     * 用于恢复deep link的返回栈(首页 -> 分类 -> 详情)，中间页面不会闪一下，
+     * 任何一个url解析失败都不会打开，回调路由不能出现在栈里
+     */
+    public void openStack(List<String> urls, Bundle extras, Context context) {
+        if (context == null) {
+            throw new ContextNotProvided("You need to supply a context for Router " + this.toString());
+        }
+        int size = urls.size();
+        if (size == 0) {
+            return;
+        }
+        NavigationEvents events = navigationEvents;
+        boolean record = events != null && events.hasListeners();
+        long start = record ? System.nanoTime() : 0;
+        RouterParams[] params = new RouterParams[size];
+        Intent[] intents = new Intent[size];
+        int index = 0;
+        try {
+            for (; index < size; index++) {
+                params[index] = resolve(urls.get(index));
+                intents[index] = buildIntent(context, params[index]);
+                if (intents[index] == null) {
+                    throw new IllegalArgumentException("Callback route can not be opened in a stack: "
+                            + urls.get(index));
+                }
+            }
+            if (extras != null) {
+                intents[size - 1].putExtras(extras);
+            }
+            if (!(context instanceof Activity)) {
+                intents[0].addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            }
+            context.startActivities(intents);
+        } catch (RuntimeException e) {
+            if (record) {
+                int failed = Math.min(index, size - 1);
+                events.publish(NavigationEvent.of(urls.get(failed), params[failed], System.nanoTime() - start, e));
+            }
+            throw e;
+        }
+        if (record) {
+            long latency = System.nanoTime() - start;
+            for (int i = 0; i < size; i++) {
+                events.publish(NavigationEvent.of(urls.get(i), params[i], latency, null));
+            }
+        }
+    }
+
+    private void open(RouterParams params, Bundle extras, Context context) {
         RouterOptions options = params.getRouterOptions();
         if (options.getCallback() != null) {
-            RouterContext routeContext = new RouterContext(params.getOpenParams(), extras, context);
+            RouterContext routeContext = new RouterContext(params.getOpenParams(),
+                    extras != null ? extras : new Bundle(), context);
             options.getCallback().run(routeContext);
             return;
         }
@@ -150,12 +707,9 @@ public class Router {
         }
         if (extras != null) {
             intent.putExtras(extras);
-        } else {
-            Bundle bundle = new Bundle();
-            intent.putExtras(bundle);
         }
         if (!(context instanceof Activity)) {
-            intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
         }
         context.startActivity(intent);
     }
@@ -166,41 +720,134 @@ public class Router {
         }
     }
 
-    private Intent intentFor(RouterParams params) {
-        RouterOptions options = params.getRouterOptions();
-        Intent intent = new Intent();
-        assert options != null;
-        if (options.getDefaultParams() != null) {
-            intent.putExtras(options.getDefaultParams());
+    private RouterParams resolve(String url) {
+        return resolve(url, null);
+    }
+
+    private RouterParams resolve(String url, Uri uri) {
+        RouterParams params = resolveOnce(url, uri);
+        int redirects = 0;
+        while (params.getRouterOptions().getRedirectUrl() != null) {
+            if (++redirects > MAX_REDIRECTS) {
+                throw new RouteNotFoundException("Too many redirects for url " + url);
+            }
+            params = resolveOnce(params.getRouterOptions().getRedirectUrl(), null);
         }
-        for (Entry<String, String> entry : params.getOpenParams().entrySet()) {
-            intent.putExtra(entry.getKey(), entry.getValue());
+        if (params.getRouterOptions().isDisabled()) {
+            throw new RouteNotFoundException("Route disabled for url " + url);
         }
-        return intent;
+        return params;
+    }
+
+    private RouterParams resolve(RouteRef ref, Map<String, ?> args) {
+        moduleLoader.awaitHost(ref.getHost());
+        RealCall call = realCall;
+        RouterOptions options = null;
+        RouterScope[] attached = scopes;
+        for (int i = attached.length - 1; i >= 0 && options == null; i--) {
+            HostParams scoped = attached[i].getHostParams(ref.getHost());
+            if (scoped != null) {
+                options = scoped.getOptions(ref.getPath());
+                call = attached[i].getRealCall();
+            }
+        }
+        if (options == null) {
+            HostParams hostParams = hosts.get(ref.getHost());
+            options = hostParams != null ? hostParams.getOptions(ref.getPath()) : null;
+            call = realCall;
+        }
+        if (options == null || options.getRedirectUrl() != null) {
+            // 路由表里没有这个模板或者被重定向了，退回按url解析
+            return resolve(ref.build(args));
+        }
+        if (options.isDisabled()) {
+            throw new RouteNotFoundException("Route disabled for url " + ref.getTemplate());
+        }
+        String url = ref.build(args);
+        // 只有模板里的参数是路径参数，其余的已经拼进query，由ParamMap从url里读
+        Map<String, String> pathParams = new HashMap<>();
+        if (args != null) {
+            for (String name : ref.getParamNames()) {
+                Object value = args.get(name);
+                if (value != null) {
+                    pathParams.put(name, String.valueOf(value));
+                }
+            }
+        }
+        RouterParams params = new RouterParams();
+        params.setUrl(ref.getPath());
+        params.setHost(ref.getHost());
+        params.setWeight(options.getWeight());
+        params.setRouterOptions(options);
+        params.setOpenParams(new ParamMap(url, pathParams));
+        return call.dispatch(url, params);
     }
 
+    private RouterParams resolveOnce(String url, Uri uri) {
+        if (uri != null) {
+            moduleLoader.awaitHost(RouterUtils.hostOf(uri));
+        } else {
+            moduleLoader.awaitUrl(url);
+        }
+        RouterScope[] attached = scopes;
+        if (attached.length > 0) {
+            if (uri == null) {
+                uri = Uri.parse(url);
+            }
+            String host = RouterUtils.hostOf(uri);
+            // 后attach的scope优先，scope里没有这个路由时回到全局路由表
+            for (int i = attached.length - 1; i >= 0; i--) {
+                if (attached[i].ownsHost(host)) {
+                    try {
+                        return attached[i].open(url, uri);
+                    } catch (RouteNotFoundException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        return realCall.open(url, uri);
+    }
 
     public boolean isCallbackUrl(String url) {
-        RouterParams params = realCall.open(url);
+        RouterParams params = resolve(url);
         RouterOptions options = params.getRouterOptions();
         return options.getCallback() != null;
     }
 
 
     public Intent intentFor(Context context, String url) {
-        RouterParams params = realCall.open(url);
+        RouterParams params = resolve(url);
         return intentFor(context, params);
     }
 
     private Intent intentFor(Context context, RouterParams params) {
+        Intent intent = buildIntent(context, params);
+        if (intent != null) {
+            this.addFlagsToIntent(intent, context);
+        }
+        return intent;
+    }
+
+    /**
+     * 不加NEW_TASK，openStack只需要给栈底的intent加
+     */
+    private Intent buildIntent(Context context, RouterParams params) {
         RouterOptions options = params.getRouterOptions();
         if (options.getCallback() != null) {
             return null;
         }
 
-        Intent intent = intentFor(params);
-        intent.setClass(context, options.getOpenClass());
-        this.addFlagsToIntent(intent, context);
+        // 模板已经带好component和默认参数，这里只追加本次打开的参数
+        Intent intent = new Intent(options.intentTemplate(context));
+        Map<String, String> openParams = params.getOpenParams();
+        if (openParams instanceof ParamMap) {
+            ((ParamMap) openParams).putInto(intent);
+        } else if (openParams != null) {
+            for (Entry<String, String> entry : openParams.entrySet()) {
+                intent.putExtra(entry.getKey(), entry.getValue());
+            }
+        }
         return intent;
     }
 
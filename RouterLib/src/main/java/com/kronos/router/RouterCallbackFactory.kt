@@ -0,0 +1,8 @@
+package com.kronos.router
+
+/**
+ * 延迟创建[RouterCallback]，生成代码里每个isRunnable的路由对应一个工厂
+ */
+interface RouterCallbackFactory {
+    fun create(): RouterCallback
+}
@@ -2,8 +2,23 @@ package com.kronos.router
 
 import android.content.Context
 import android.os.Bundle
+import com.kronos.router.model.ParamMap
 
 /**
  * Created by zhangyang on 16/7/16.
+ *
+ * params可以和以前一样直接修改，每次打开都是单独的一份，不会影响缓存
  */
-class RouterContext(val params: Map<String, String>, val extras: Bundle, val context: Context)
+class RouterContext(params: Map<String, String>, val extras: Bundle, val context: Context) {
+
+    /**
+     * params背后的懒解析视图，只读取少数参数时不需要解码整个query
+     */
+    val paramMap: ParamMap = ParamMap.of(params)
+
+    /**
+     * 类型保持Map，已经编译好的回调调用的getParams()签名不变
+     */
+    val params: Map<String, String>
+        get() = paramMap
+}
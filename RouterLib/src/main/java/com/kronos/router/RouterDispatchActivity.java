@@ -0,0 +1,89 @@
+package com.kronos.router;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+
+import com.kronos.router.exception.DispatchRejectedException;
+import com.kronos.router.exception.RouteNotFoundException;
+
+/**
+ * 外部deep link的统一入口，不加载布局，onCreate里直接用Intent里解析好的Uri路由并转发，然后马上finish
+ * <p>
+ * 库的manifest里已经声明并设置了Theme.NoDisplay，app只需要在自己的manifest里给它补上intent-filter
+ * <p>
+ * 加上intent-filter之后任何app都能拉起它，所以默认拒绝所有uri、不转发extras，需要app显式放开
+ */
+public class RouterDispatchActivity extends Activity {
+    private static volatile DispatchListener dispatchListener;
+    private static volatile DispatchFilter dispatchFilter;
+    private static volatile boolean forwardExtras;
+
+    public static void setDispatchListener(DispatchListener listener) {
+        dispatchListener = listener;
+    }
+
+    /**
+     * 不设置并且没有覆盖shouldDispatch时拒绝所有uri
+     */
+    public static void setDispatchFilter(DispatchFilter filter) {
+        dispatchFilter = filter;
+    }
+
+    /**
+     * extras由调用方随意构造，转发给内部页面之前确认目标页面能处理不可信的参数
+     */
+    public static void setForwardExtras(boolean forward) {
+        forwardExtras = forward;
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        long start = System.nanoTime();
+        super.onCreate(savedInstanceState);
+        Intent intent = getIntent();
+        RuntimeException error = null;
+        try {
+            Uri uri = intent.getData();
+            if (uri == null) {
+                throw new RouteNotFoundException("No data uri found in intent " + intent);
+            }
+            if (!shouldDispatch(uri)) {
+                throw new DispatchRejectedException("Dispatch rejected for uri " + uri);
+            }
+            Router.sharedRouter().open(uri, shouldForwardExtras() ? intent.getExtras() : null, this);
+        } catch (RuntimeException e) {
+            error = e;
+            onDispatchFailed(intent, e);
+        }
+        // NoDisplay主题要求在onResume之前finish
+        finish();
+        DispatchListener listener = dispatchListener;
+        if (listener != null) {
+            listener.onDispatched(intent.getData(), System.nanoTime() - start, error);
+        }
+    }
+
+    /**
+     * 在open之前调用，默认交给setDispatchFilter设置的过滤器，没有过滤器时拒绝，子类可以覆盖成自己的白名单
+     */
+    protected boolean shouldDispatch(Uri uri) {
+        DispatchFilter filter = dispatchFilter;
+        return filter != null && filter.accept(uri);
+    }
+
+    /**
+     * 默认只把uri里的参数带给目标页面，外部intent的extras需要setForwardExtras(true)或者子类覆盖
+     */
+    protected boolean shouldForwardExtras() {
+        return forwardExtras;
+    }
+
+    /**
+     * 被拒绝、没有匹配的路由或者打开失败，子类可以覆盖成打开兜底页
+     */
+    protected void onDispatchFailed(Intent intent, RuntimeException e) {
+        e.printStackTrace();
+    }
+}
@@ -1,63 +1,139 @@
 package com.kronos.router
 
+import android.app.Activity
 import android.content.Intent
 import android.os.Bundle
 import android.text.TextUtils
 import androidx.fragment.app.FragmentActivity
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * Created by zhangyang on 16/7/18.
  */
 object RouterInject {
+
+    /**
+     * 由生成的RouterInit注册，key为目标类
+     */
+    private val injectors = ConcurrentHashMap<Class<*>, ParamInjector<Any>>()
+
+    /**
+     * Intent里的target只有fragment类名，用它找到已注册的目标类
+     */
+    private val targetClasses = ConcurrentHashMap<String, Class<*>>()
+
+    /**
+     * 生成的RouterInit和路由快照只注册类名，第一次inject时才加载并放进按类索引
+     */
+    private val injectorNames = ConcurrentHashMap<String, String>()
+
+    @JvmStatic
+    @Suppress("UNCHECKED_CAST")
+    fun <T> register(target: Class<T>, injector: ParamInjector<T>) {
+        injectors[target] = injector as ParamInjector<Any>
+        targetClasses[target.name] = target
+    }
+
+    @JvmStatic
+    fun register(className: String, injectorClassName: String) {
+        injectorNames[className] = injectorClassName
+    }
+
+    /**
+     * 目标类名到injector类名的映射，写路由快照用
+     */
+    @JvmStatic
+    fun registeredInjectors(): Map<String, String> {
+        val result = HashMap<String, String>(injectorNames)
+        for ((target, injector) in injectors) {
+            result[target.name] = injector.javaClass.name
+        }
+        return result
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun findInjector(target: Class<*>): ParamInjector<Any>? {
+        val injector = injectors[target]
+        if (injector != null || injectorNames.isEmpty()) {
+            return injector
+        }
+        val injectorClassName = injectorNames[target.name] ?: return null
+        val created = Class.forName(injectorClassName).newInstance() as ParamInjector<Any>
+        targetClasses[target.name] = target
+        // 并发第一次inject时只保留一个实例
+        return injectors.putIfAbsent(target, created) ?: created
+    }
+
+    /**
+     * target对应的fragment通过类索引查找，先按tag直接取，宿主用类名做tag添加fragment时不用遍历
+     */
+    @JvmStatic
     fun inject(activity: FragmentActivity, intent: Intent) {
-        val bundle = intent.extras
-        val target = bundle?.getString("target")
-        val inject = getActivityInject(activity) ?: return
-        inject.inject(bundle!!)
+        val bundle = intent.extras ?: return
+        val injected = injectActivity(activity, bundle)
+        val target = bundle.getString("target") ?: return
         val fragmentManager = activity.supportFragmentManager
-        val fragments = fragmentManager.fragments
-        for (fragment in fragments) {
-            if (fragment == null) {
-                continue
-            }
-            val fragmentInject = inject(fragment, target)
-            if (fragmentInject != null) {
-                fragmentInject.inject(bundle)
-                break
+        val targetClass = targetClass(target)
+        if (targetClass == null) {
+            // 手写IFragmentInject的旧用法没有生成的索引，只能按类名比较
+            if (injected) {
+                fragmentManager.fragments.firstOrNull {
+                    it is IFragmentInject && TextUtils.equals(it.javaClass.name, target)
+                }?.let { inject(it, bundle) }
             }
+            return
+        }
+        var fragment = fragmentManager.findFragmentByTag(target)
+        if (fragment == null || fragment.javaClass !== targetClass) {
+            fragment = fragmentManager.fragments.firstOrNull { it != null && it.javaClass === targetClass }
+        }
+        if (fragment != null) {
+            inject(fragment, bundle)
         }
     }
 
-    fun inject(fragment: androidx.fragment.app.Fragment, bundle: Bundle?) {
-        val target = bundle?.getString("target")
-        val inject = deal(fragment, target)
-        inject?.inject(bundle!!)
-    }
-
-    private fun inject(fragment: androidx.fragment.app.Fragment, target: String?): IFragmentInject? {
-        return deal(fragment, target)
+    private fun targetClass(className: String): Class<*>? {
+        val target = targetClasses[className]
+        if (target != null || !injectorNames.containsKey(className)) {
+            return target
+        }
+        val loaded = Class.forName(className)
+        targetClasses[className] = loaded
+        return loaded
     }
 
-    private fun deal(any: Any, target: String?): IFragmentInject? {
-        return if (TextUtils.equals(any.javaClass.name, target)) {
-            getFragmentInject(any)
-        } else null
+    @JvmStatic
+    fun inject(activity: Activity, intent: Intent) {
+        val bundle = intent.extras ?: return
+        injectActivity(activity, bundle)
     }
 
-    private fun getActivityInject(any: Any): IActivityInject? {
-        return if (any is IActivityInject) {
-            any
-        } else {
-            null
+    @JvmStatic
+    fun inject(fragment: androidx.fragment.app.Fragment, bundle: Bundle?) {
+        if (bundle == null) {
+            return
+        }
+        val injector = findInjector(fragment.javaClass)
+        if (injector != null) {
+            injector.inject(fragment, bundle)
+            return
+        }
+        val target = bundle.getString("target")
+        if (fragment is IFragmentInject && TextUtils.equals(fragment.javaClass.name, target)) {
+            fragment.inject(bundle)
         }
     }
 
-    private fun getFragmentInject(any: Any): IFragmentInject? {
-        return if (any is IFragmentInject) {
-            any
-        } else {
-            null
+    private fun injectActivity(activity: Activity, bundle: Bundle): Boolean {
+        val injector = findInjector(activity.javaClass)
+        if (injector != null) {
+            injector.inject(activity, bundle)
+        }
+        if (activity is IActivityInject) {
+            activity.inject(bundle)
+            return true
         }
+        return injector != null
     }
 
 }
@@ -0,0 +1,136 @@
+package com.kronos.router;
+
+import android.app.Activity;
+import android.net.Uri;
+
+import com.kronos.router.exception.RouteNotFoundException;
+import com.kronos.router.interceptor.Interceptor;
+import com.kronos.router.interceptor.InterceptorScope;
+import com.kronos.router.interceptor.RealCall;
+import com.kronos.router.model.HostParams;
+import com.kronos.router.model.RouterOptions;
+import com.kronos.router.model.RouterParams;
+import com.kronos.router.utils.RouterUtils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 有自己路由表、缓存和拦截器的子路由，给动态feature模块或者AB实验用
+ * <p>
+ * attach到Router之后，属于这个scope的host先在这里匹配，没匹配到再回到全局路由表；
+ * detach时整个scope的路由和缓存一起释放，不需要逐条删除
+ */
+public class RouterScope {
+    private final String name;
+    private final Map<String, HostParams> hosts = new ConcurrentHashMap<>();
+    private final RealCall realCall = new RealCall(hosts);
+
+    public RouterScope(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public RouterScope map(String url, RouterCallback callback) {
+        RouterOptions options = new RouterOptions();
+        options.setCallback(callback);
+        return addRoute(url, options);
+    }
+
+    public RouterScope map(String url, Class<? extends Activity> mClass) {
+        return map(url, mClass, new RouterOptions());
+    }
+
+    public RouterScope map(String url, Class<? extends Activity> mClass, RouterOptions options) {
+        if (options == null) {
+            options = new RouterOptions();
+        }
+        options.setOpenClass(mClass);
+        return addRoute(url, options);
+    }
+
+    public RouterScope map(String url, String activityName) {
+        return map(url, activityName, new RouterOptions());
+    }
+
+    public RouterScope map(String url, String activityName, RouterOptions options) {
+        if (options == null) {
+            options = new RouterOptions();
+        }
+        options.setOpenClassName(activityName);
+        return addRoute(url, options);
+    }
+
+    /**
+     * @return 路由不存在时返回false
+     */
+    public synchronized boolean unmap(String url) {
+        Uri uri = Uri.parse(url);
+        String host = RouterUtils.hostOf(uri);
+        HostParams hostParams = hosts.get(host);
+        if (hostParams == null || hostParams.removeRoute(uri.getPath()) == null) {
+            return false;
+        }
+        if (hostParams.getEntries().getSize() == 0) {
+            hosts.remove(host);
+        }
+        realCall.invalidateHosts(Collections.singleton(host));
+        return true;
+    }
+
+    public void addInterceptor(InterceptorScope scope, Interceptor interceptor) {
+        realCall.addInterceptor(scope, interceptor);
+    }
+
+    public boolean ownsHost(String host) {
+        return hosts.containsKey(host);
+    }
+
+    /**
+     * 释放所有路由和缓存，之后可以重新map再attach
+     */
+    public synchronized void clear() {
+        hosts.clear();
+        realCall.clearCache();
+    }
+
+    public long estimateRouteBytes() {
+        long bytes = 0;
+        for (HostParams hostParams : hosts.values()) {
+            bytes += hostParams.estimateBytes();
+        }
+        return bytes;
+    }
+
+    public long estimateCacheBytes() {
+        return realCall.estimateCacheBytes();
+    }
+
+    HostParams getHostParams(String host) {
+        return hosts.get(host);
+    }
+
+    RealCall getRealCall() {
+        return realCall;
+    }
+
+    RouterParams open(String url, Uri uri) throws RouteNotFoundException {
+        return realCall.open(url, uri);
+    }
+
+    private synchronized RouterScope addRoute(String url, RouterOptions options) {
+        Uri uri = Uri.parse(url);
+        String host = RouterUtils.hostOf(uri);
+        HostParams hostParams = hosts.get(host);
+        if (hostParams == null) {
+            hostParams = new HostParams(host);
+            hosts.put(host, hostParams);
+        }
+        hostParams.setRoute(uri.getPath(), options);
+        return this;
+    }
+}
@@ -0,0 +1,98 @@
+package com.kronos.router.coalesce;
+
+import com.kronos.router.utils.StripedCounter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 连点或者重复的push在时间窗口内打开同一个页面时，只让第一次通过
+ * <p>
+ * 最近打开过的key按hash放进一个很小的槽位表，每个槽位只记最后一次，CAS更新不加锁。
+ * 两个不同的key落在同一个槽位时互相覆盖，最多漏掉一次去重，不会误丢不同的页面
+ */
+public class NavigationCoalescer {
+
+    public enum Key {
+        /**
+         * 完整url相同才算重复，在解析路由之前判断
+         */
+        URL,
+        /**
+         * 命中同一个路由模板就算重复(比如/item/1和/item/2)，需要先解析出路由
+         */
+        TEMPLATE
+    }
+
+    private static final int SLOTS = 64;
+
+    private final long windowNanos;
+    private final Key key;
+    private final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<>(SLOTS);
+    private final StripedCounter dropped = new StripedCounter();
+
+    public NavigationCoalescer(long windowMillis, Key key) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.key = key;
+    }
+
+    public Key getKey() {
+        return key;
+    }
+
+    /**
+     * 被合并掉的打开次数
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @param now System.nanoTime()
+     * @return false表示窗口内已经打开过，这次应该丢弃
+     */
+    public boolean tryOpen(String value, long now) {
+        int index = indexOf(value);
+        Slot next = new Slot(value, now);
+        while (true) {
+            Slot current = slots.get(index);
+            if (current != null && now - current.time < windowNanos && current.value.equals(value)) {
+                dropped.increment();
+                return false;
+            }
+            if (slots.compareAndSet(index, current, next)) {
+                return true;
+            }
+            // 另一个线程刚写了这个槽位，重新判断是不是同一个页面
+        }
+    }
+
+    /**
+     * 通过了tryOpen但是解析或者打开失败时调用，让重试不会被当成重复丢掉
+     * 槽位已经被之后的打开覆盖时什么也不做
+     *
+     * @param now 和tryOpen传入的是同一个值
+     */
+    public void release(String value, long now) {
+        int index = indexOf(value);
+        Slot current = slots.get(index);
+        if (current != null && current.time == now && current.value.equals(value)) {
+            slots.compareAndSet(index, current, null);
+        }
+    }
+
+    private static int indexOf(String value) {
+        int hash = value.hashCode();
+        return (hash ^ (hash >>> 16)) & (SLOTS - 1);
+    }
+
+    private static final class Slot {
+        final String value;
+        final long time;
+
+        Slot(String value, long time) {
+            this.value = value;
+            this.time = time;
+        }
+    }
+}
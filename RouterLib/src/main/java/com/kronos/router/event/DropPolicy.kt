@@ -0,0 +1,16 @@
+package com.kronos.router.event
+
+/**
+ * 导航事件缓冲区满了之后的处理方式，两种都不会阻塞open()
+ */
+enum class DropPolicy {
+    /**
+     * 丢掉这次的新事件
+     */
+    DROP_NEWEST,
+
+    /**
+     * 丢掉最早还没被消费的事件，保留最近的
+     */
+    DROP_OLDEST
+}
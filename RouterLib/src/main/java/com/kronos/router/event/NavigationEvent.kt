@@ -0,0 +1,64 @@
+package com.kronos.router.event
+
+import com.kronos.router.LazyRouterCallback
+import com.kronos.router.exception.RouteNotFoundException
+import com.kronos.router.model.RouterOptions
+import com.kronos.router.model.RouterParams
+
+/**
+ * 一次Router.open的结果，template/host/target在没有匹配到路由时为null
+ */
+class NavigationEvent(val url: String,
+                      val host: String?,
+                      val template: String?,
+                      val target: String?,
+                      val latencyNanos: Long,
+                      val outcome: Outcome,
+                      val timestamp: Long) {
+
+    enum class Outcome {
+        OPENED,
+        CALLBACK,
+        NOT_FOUND,
+        FAILED,
+
+        /**
+         * 窗口内重复打开，被NavigationCoalescer丢弃
+         */
+        COALESCED
+    }
+
+    override fun toString(): String {
+        return "NavigationEvent(url=$url, host=$host, template=$template, target=$target, " +
+                "latencyNanos=$latencyNanos, outcome=$outcome)"
+    }
+
+    companion object {
+        @JvmStatic
+        fun of(url: String, params: RouterParams?, latencyNanos: Long, error: Throwable?): NavigationEvent {
+            val options = params?.routerOptions
+            val callback = options?.callback
+            val outcome = when {
+                error == null -> if (callback != null) Outcome.CALLBACK else Outcome.OPENED
+                error is RouteNotFoundException && params == null -> Outcome.NOT_FOUND
+                else -> Outcome.FAILED
+            }
+            return NavigationEvent(url, params?.host, params?.url, targetOf(options), latencyNanos, outcome,
+                    System.currentTimeMillis())
+        }
+
+        @JvmStatic
+        fun coalesced(url: String, params: RouterParams?, latencyNanos: Long): NavigationEvent {
+            return NavigationEvent(url, params?.host, params?.url, targetOf(params?.routerOptions), latencyNanos,
+                    Outcome.COALESCED, System.currentTimeMillis())
+        }
+
+        /**
+         * 生成的回调都包了一层LazyRouterCallback，统计时用真正的回调类名
+         */
+        private fun targetOf(options: RouterOptions?): String? {
+            val callback = options?.callback ?: return options?.openClassName
+            return (callback as? LazyRouterCallback)?.targetClassName ?: callback.javaClass.name
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.kronos.router.event;
+
+import com.kronos.router.utils.StripedCounter;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * open()只负责把事件放进环形缓冲区，由一个后台线程取出来分发给所有监听
+ * <p>
+ * 缓冲区满了按DropPolicy丢弃，丢弃数量可以通过droppedCount()查看；
+ * 没有监听时Router不会创建事件
+ */
+public class NavigationEvents {
+    public static final int DEFAULT_CAPACITY = 256;
+    // DROP_OLDEST时和其他生产者竞争最多重试几次，超过就丢掉新事件，保证open()不会自旋
+    private static final int MAX_EVICT_ATTEMPTS = 4;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final NavigationRingBuffer buffer;
+    private final DropPolicy policy;
+    private final CopyOnWriteArrayList<NavigationListener> listeners = new CopyOnWriteArrayList<>();
+    private final StripedCounter dropped = new StripedCounter();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicBoolean sleeping = new AtomicBoolean();
+    private volatile Thread drainer;
+
+    public NavigationEvents(int capacity, DropPolicy policy) {
+        this.buffer = new NavigationRingBuffer(capacity);
+        this.policy = policy;
+    }
+
+    public void addListener(NavigationListener listener) {
+        listeners.add(listener);
+        if (started.compareAndSet(false, true)) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    drainLoop();
+                }
+            }, "router-navigation-events");
+            thread.setDaemon(true);
+            drainer = thread;
+            thread.start();
+        }
+    }
+
+    public void removeListener(NavigationListener listener) {
+        listeners.remove(listener);
+    }
+
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    public DropPolicy getPolicy() {
+        return policy;
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    public void publish(NavigationEvent event) {
+        if (!buffer.offer(event)) {
+            if (policy == DropPolicy.DROP_NEWEST || !evictAndOffer(event)) {
+                dropped.increment();
+            }
+        }
+        if (sleeping.get() && sleeping.compareAndSet(true, false)) {
+            LockSupport.unpark(drainer);
+        }
+    }
+
+    private boolean evictAndOffer(NavigationEvent event) {
+        for (int i = 0; i < MAX_EVICT_ATTEMPTS; i++) {
+            if (buffer.poll() != null) {
+                dropped.increment();
+            }
+            if (buffer.offer(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void drainLoop() {
+        while (true) {
+            NavigationEvent event = buffer.poll();
+            if (event == null) {
+                sleeping.set(true);
+                // 设置标记之后再检查一次，避免错过刚放进来的事件
+                if (buffer.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                sleeping.set(false);
+                continue;
+            }
+            for (NavigationListener listener : listeners) {
+                try {
+                    listener.onNavigation(event);
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
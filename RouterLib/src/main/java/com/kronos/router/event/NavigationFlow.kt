@@ -0,0 +1,24 @@
+package com.kronos.router.event
+
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.buffer
+import kotlinx.coroutines.flow.callbackFlow
+
+/**
+ * 把导航事件转成Flow，收集时注册监听，取消收集时移除
+ * 收集方跟不上时channel满了直接丢弃，不会反过来阻塞事件线程，丢弃的数量计入droppedCount
+ * 需要调用方自己依赖kotlinx-coroutines
+ */
+fun NavigationEvents.asFlow(capacity: Int = Channel.BUFFERED): Flow<NavigationEvent> = callbackFlow {
+    val listener = object : NavigationListener {
+        override fun onNavigation(event: NavigationEvent) {
+            if (trySend(event).isFailure) {
+                recordDropped()
+            }
+        }
+    }
+    addListener(listener)
+    awaitClose { removeListener(listener) }
+}.buffer(capacity)
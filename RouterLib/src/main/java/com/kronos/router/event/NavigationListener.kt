@@ -0,0 +1,8 @@
+package com.kronos.router.event
+
+/**
+ * 在后台的事件线程回调，不会在open()所在的线程执行
+ */
+interface NavigationListener {
+    fun onNavigation(event: NavigationEvent)
+}
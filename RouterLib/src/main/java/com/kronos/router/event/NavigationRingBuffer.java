@@ -0,0 +1,83 @@
+package com.kronos.router.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁多生产者多消费者队列(Vyukov)，满了offer直接返回false，空了poll返回null
+ * <p>
+ * 每个槽位带一个序号：序号等于入队位置表示可写，等于入队位置+1表示可读，
+ * 读完之后改成下一圈的入队位置
+ */
+final class NavigationRingBuffer {
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final AtomicReferenceArray<NavigationEvent> slots;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    NavigationRingBuffer(int capacity) {
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        slots = new AtomicReferenceArray<>(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    boolean offer(NavigationEvent event) {
+        long position = enqueuePosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, event);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = enqueuePosition.get();
+            } else if (diff < 0) {
+                // 上一圈的事件还没被取走，队列满了
+                return false;
+            } else {
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    NavigationEvent poll() {
+        long position = dequeuePosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - (position + 1);
+            if (diff == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    NavigationEvent event = slots.get(index);
+                    slots.lazySet(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return event;
+                }
+                position = dequeuePosition.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                position = dequeuePosition.get();
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        long position = dequeuePosition.get();
+        return sequences.get((int) (position & mask)) - (position + 1) < 0;
+    }
+}
@@ -0,0 +1,6 @@
+package com.kronos.router.exception
+
+/**
+ * RouterDispatchActivity收到的uri被DispatchFilter拒绝
+ */
+class DispatchRejectedException(message: String) : RuntimeException(message)
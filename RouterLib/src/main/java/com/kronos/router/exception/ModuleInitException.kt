@@ -0,0 +1,6 @@
+package com.kronos.router.exception
+
+/**
+ * 并行初始化时某个模块的RouterInit执行失败，打开这个模块的host时抛出
+ */
+class ModuleInitException(message: String, cause: Throwable) : RuntimeException(message, cause)
@@ -3,26 +3,55 @@ package com.kronos.router.interceptor;
 import android.util.Log;
 
 import com.kronos.router.exception.RouteNotFoundException;
+import com.kronos.router.model.HostParams;
 import com.kronos.router.model.RouterParams;
+import com.kronos.router.utils.StripedCounter;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class CacheInterceptor implements Interceptor {
-    private final Map<String, RouterParams> cachedRoutes;
+    private final ConcurrentMap<String, RouterParams> cachedRoutes;
+    private final StripedCounter hits;
+    private final StripedCounter misses;
+    private final AtomicInteger generation;
 
-    CacheInterceptor(Map<String, RouterParams> cachedRoutes) {
+    CacheInterceptor(ConcurrentMap<String, RouterParams> cachedRoutes, StripedCounter hits, StripedCounter misses,
+                     AtomicInteger generation) {
         this.cachedRoutes = cachedRoutes;
+        this.hits = hits;
+        this.misses = misses;
+        this.generation = generation;
     }
 
     @Override
     public RouterParams intercept(Chain chain) throws RouteNotFoundException {
         String url = chain.url();
         Log.i("TestInterceptor", "缓存池");
-        if (cachedRoutes.get(url) != null) {
-            return cachedRoutes.get(url);
+        RouterParams cached = cachedRoutes.get(url);
+        if (cached != null && isCurrent(cached, chain.getHostParams())) {
+            hits.increment();
+            return cached.copy();
         }
+        misses.increment();
+        int started = generation.get();
         RouterParams routerParams = chain.proceed(url);
         cachedRoutes.put(url, routerParams);
-        return routerParams;
+        // 解析期间缓存被清过(比如scope已经detach)，先写再检查，清空和写入谁先谁后都不会留下旧结果
+        if (generation.get() != started) {
+            cachedRoutes.remove(url, routerParams);
+        }
+        return routerParams.copy();
+    }
+
+    /**
+     * 缓存时的路由快照和当前路由表里的是同一份才有效，
+     * 缓存之后再map或者覆盖了这个host的路由，旧结果不会再被命中
+     */
+    private static boolean isCurrent(RouterParams cached, Map<String, HostParams> hosts) {
+        String host = cached.getHost();
+        HostParams hostParams = host != null ? hosts.get(host) : null;
+        return hostParams != null && hostParams.getEntries() == cached.getRouteEntries();
     }
 }
@@ -0,0 +1,48 @@
+package com.kronos.router.interceptor;
+
+import android.net.Uri;
+import android.text.TextUtils;
+
+/**
+ * 拦截器生效的范围，可以是整个host、host下的path前缀或者某一个路由模板
+ */
+public class InterceptorScope {
+    private final String host;
+    private final String path;
+    private final boolean prefix;
+
+    private InterceptorScope(String host, String path, boolean prefix) {
+        this.host = host;
+        this.path = path;
+        this.prefix = prefix;
+    }
+
+    public static InterceptorScope host(String host) {
+        return new InterceptorScope(host, null, true);
+    }
+
+    public static InterceptorScope pathPrefix(String host, String pathPrefix) {
+        return new InterceptorScope(host, pathPrefix, true);
+    }
+
+    /**
+     * @param url 和注册时一样的路由模板，例如 https://www.baidu.com/:id{string}
+     */
+    public static InterceptorScope route(String url) {
+        Uri uri = Uri.parse(url);
+        return new InterceptorScope(uri.getHost(), uri.getPath(), false);
+    }
+
+    /**
+     * @param routePath 命中的路由模板path，不是实际打开的url
+     */
+    public boolean matches(String routeHost, String routePath) {
+        if (!TextUtils.equals(host, routeHost)) {
+            return false;
+        }
+        if (path == null) {
+            return true;
+        }
+        return prefix ? routePath != null && routePath.startsWith(path) : TextUtils.equals(path, routePath);
+    }
+}
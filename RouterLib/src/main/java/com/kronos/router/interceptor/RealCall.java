@@ -1,33 +1,159 @@
 package com.kronos.router.interceptor;
 
+import android.net.Uri;
+
 import com.kronos.router.exception.RouteNotFoundException;
 import com.kronos.router.model.HostParams;
+import com.kronos.router.model.ParamMap;
+import com.kronos.router.model.RouterCacheStats;
+import com.kronos.router.model.RouterOptions;
 import com.kronos.router.model.RouterParams;
+import com.kronos.router.utils.MemoryEstimator;
+import com.kronos.router.utils.StripedCounter;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class RealCall {
 
-    private Map<String, RouterParams> cachedRoutes = new HashMap<>();
-    private final Map<String, HostParams> hostMap;
+    private final ConcurrentMap<String, RouterParams> cachedRoutes = new ConcurrentHashMap<>();
+    private final StripedCounter cacheHits = new StripedCounter();
+    private final StripedCounter cacheMisses = new StripedCounter();
+    /**
+     * 每次清理缓存加一，正在解析的请求发现变了就不会把结果留在缓存里
+     */
+    private final AtomicInteger cacheGeneration = new AtomicInteger();
+    private volatile Map<String, HostParams> hostMap;
+    private final List<InterceptorScope> scopes = new ArrayList<>();
+    private final List<Interceptor> scopedInterceptors = new ArrayList<>();
+    private volatile int interceptorVersion;
 
     public RealCall(Map<String, HostParams> hostMap) {
         this.hostMap = hostMap;
     }
 
     public RouterParams open(String url) throws RouteNotFoundException {
-        return getParamsWithInterceptorChain(url);
+        return open(url, null);
+    }
+
+    /**
+     * @param uri url已经解析过的Uri，可以为null
+     */
+    public RouterParams open(String url, Uri uri) throws RouteNotFoundException {
+        return dispatch(url, getParamsWithInterceptorChain(url, uri));
+    }
+
+    /**
+     * 已经匹配到路由(比如通过RouteRef)时直接从这里开始，只执行统计和局部拦截器
+     */
+    public RouterParams dispatch(String url, RouterParams params) throws RouteNotFoundException {
+        params.getRouterOptions().recordHit();
+        Interceptor[] pipeline = pipelineFor(params);
+        if (pipeline.length == 0) {
+            return params;
+        }
+        return proceedPipeline(pipeline, url, params);
+    }
+
+    /**
+     * 局部拦截器在路由匹配之后执行，没有命中任何范围的路由不会有额外开销
+     */
+    public synchronized void addInterceptor(InterceptorScope scope, Interceptor interceptor) {
+        scopes.add(scope);
+        scopedInterceptors.add(interceptor);
+        interceptorVersion++;
+    }
+
+    private Interceptor[] pipelineFor(RouterParams params) {
+        RouterOptions options = params.getRouterOptions();
+        RoutePipeline pipeline = options.getPipeline();
+        int version = interceptorVersion;
+        if (pipeline != null && pipeline.version == version) {
+            return pipeline.interceptors;
+        }
+        Interceptor[] interceptors = RoutePipeline.NONE;
+        if (version > 0) {
+            List<Interceptor> matched = new ArrayList<>();
+            synchronized (this) {
+                version = interceptorVersion;
+                for (int i = 0; i < scopes.size(); i++) {
+                    if (scopes.get(i).matches(params.getHost(), params.getUrl())) {
+                        matched.add(scopedInterceptors.get(i));
+                    }
+                }
+            }
+            interceptors = matched.toArray(new Interceptor[0]);
+        }
+        options.setPipeline(new RoutePipeline(version, interceptors));
+        return interceptors;
+    }
+
+    private RouterParams proceedPipeline(Interceptor[] pipeline, final String url, final RouterParams params) {
+        List<Interceptor> interceptors = new ArrayList<>(pipeline.length + 1);
+        Collections.addAll(interceptors, pipeline);
+        interceptors.add(new Interceptor() {
+            @Override
+            public RouterParams intercept(Chain chain) throws RouteNotFoundException {
+                // 拦截器改了url(比如跳登录)时重新匹配，但不再走一遍局部拦截器
+                if (url.equals(chain.url())) {
+                    return params;
+                }
+                return getParamsWithInterceptorChain(chain.url(), null);
+            }
+        });
+        return new RealInterceptorChain(interceptors, url, null, hostMap, 0).proceed(url);
+    }
+
+    public void setHostMap(Map<String, HostParams> hostMap) {
+        this.hostMap = hostMap;
+    }
+
+    /**
+     * 只清掉受影响host的缓存
+     */
+    public void invalidateHosts(Set<String> hosts) {
+        cacheGeneration.incrementAndGet();
+        Iterator<RouterParams> iterator = cachedRoutes.values().iterator();
+        while (iterator.hasNext()) {
+            if (hosts.contains(iterator.next().getHost())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public void clearCache() {
+        cacheGeneration.incrementAndGet();
+        cachedRoutes.clear();
+    }
+
+    public RouterCacheStats cacheStats() {
+        return new RouterCacheStats(cacheHits.sum(), cacheMisses.sum(), cachedRoutes.size());
+    }
+
+    public long estimateCacheBytes() {
+        long bytes = MemoryEstimator.instance(4, 16) + MemoryEstimator.array(cachedRoutes.size() * 2);
+        for (Map.Entry<String, RouterParams> entry : cachedRoutes.entrySet()) {
+            bytes += MemoryEstimator.instance(4, 4) + MemoryEstimator.string(entry.getKey());
+            Map<String, String> openParams = entry.getValue().getOpenParams();
+            bytes += MemoryEstimator.instance(5, 4) + (openParams instanceof ParamMap
+                    ? ((ParamMap) openParams).estimateBytes() : MemoryEstimator.map(openParams));
+        }
+        return bytes;
     }
 
-    private RouterParams getParamsWithInterceptorChain(String url) throws RouteNotFoundException {
+    private RouterParams getParamsWithInterceptorChain(String url, Uri uri) throws RouteNotFoundException {
         List<Interceptor> interceptors = new ArrayList<>();
         interceptors.add(new TestInterceptor());
-        interceptors.add(new CacheInterceptor(cachedRoutes));
+        interceptors.add(new CacheInterceptor(cachedRoutes, cacheHits, cacheMisses, cacheGeneration));
         interceptors.add(new RouterInterceptor());
-        Interceptor.Chain chain = new RealInterceptorChain(interceptors, url, hostMap, 0);
+        Interceptor.Chain chain = new RealInterceptorChain(interceptors, url, uri, hostMap, 0);
         return chain.proceed(url);
     }
 
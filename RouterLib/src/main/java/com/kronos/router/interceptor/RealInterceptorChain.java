@@ -1,5 +1,7 @@
 package com.kronos.router.interceptor;
 
+import android.net.Uri;
+
 import com.kronos.router.exception.RouteNotFoundException;
 import com.kronos.router.model.HostParams;
 import com.kronos.router.model.RouterParams;
@@ -12,11 +14,13 @@ public class RealInterceptorChain implements Interceptor.Chain {
     private final String url;
     private final Map<String, HostParams> hostMap;
     private final int index;
+    private Uri uri;
 
-    RealInterceptorChain(List<Interceptor> interceptors, String url,
+    RealInterceptorChain(List<Interceptor> interceptors, String url, Uri uri,
                          Map<String, HostParams> hosts, int index) {
         this.interceptors = interceptors;
         this.url = url;
+        this.uri = uri;
         this.hostMap = hosts;
         this.index = index;
     }
@@ -26,6 +30,17 @@ public class RealInterceptorChain implements Interceptor.Chain {
         return url;
     }
 
+    /**
+     * 从Uri/Intent打开时直接复用已经解析好的Uri，否则第一次调用时才解析url
+     * 不放在Chain接口上，外部实现的Chain不受影响
+     */
+    Uri uri() {
+        if (uri == null) {
+            uri = Uri.parse(url);
+        }
+        return uri;
+    }
+
 
     @Override
     public Map<String, HostParams> getHostParams() {
@@ -41,8 +56,9 @@ public class RealInterceptorChain implements Interceptor.Chain {
         if (index >= interceptors.size()) throw new AssertionError();
 
         // Call the next intercept in the chain.
-        RealInterceptorChain next = new RealInterceptorChain(interceptors, request, hostMap,
-                index + 1);
+        // url没被拦截器改掉时把解析过的Uri继续往下传
+        RealInterceptorChain next = new RealInterceptorChain(interceptors, request,
+                request.equals(url) ? uri : null, hostMap, index + 1);
         Interceptor interceptor = interceptors.get(index);
         RouterParams routerParams = interceptor.intercept(next);
 
@@ -0,0 +1,16 @@
+package com.kronos.router.interceptor;
+
+/**
+ * 某个路由命中的局部拦截器，算一次后挂在RouterOptions上，拦截器有增减时根据version重新计算
+ */
+public class RoutePipeline {
+    static final Interceptor[] NONE = new Interceptor[0];
+
+    final int version;
+    final Interceptor[] interceptors;
+
+    RoutePipeline(int version, Interceptor[] interceptors) {
+        this.version = version;
+        this.interceptors = interceptors;
+    }
+}
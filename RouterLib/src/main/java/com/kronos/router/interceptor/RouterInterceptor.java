@@ -6,6 +6,8 @@ import android.util.Log;
 
 import com.kronos.router.exception.RouteNotFoundException;
 import com.kronos.router.model.HostParams;
+import com.kronos.router.model.ParamMap;
+import com.kronos.router.model.RouteEntries;
 import com.kronos.router.model.RouterOptions;
 import com.kronos.router.model.RouterParams;
 import com.kronos.router.utils.RouterUtils;
@@ -20,21 +22,26 @@ public class RouterInterceptor implements Interceptor {
 
     @Override
     public RouterParams intercept(Chain chain) throws RouteNotFoundException {
-        return getParams(chain.url(), chain.getHostParams());
+        // 外部实现的Chain没有解析好的Uri，只能自己解析
+        Uri uri = chain instanceof RealInterceptorChain
+                ? ((RealInterceptorChain) chain).uri() : Uri.parse(chain.url());
+        return getParams(chain.url(), uri, chain.getHostParams());
     }
 
-    private RouterParams getParams(String url, Map<String, HostParams> hosts) throws RouteNotFoundException {
-        Uri parsedUri = Uri.parse(url);
+    private RouterParams getParams(String url, Uri parsedUri, Map<String, HostParams> hosts)
+            throws RouteNotFoundException {
         String urlPath = TextUtils.isEmpty(parsedUri.getPath()) ? "" : parsedUri.
                 getPath().substring(1);
         String[] givenParts = urlPath.split("/");
         List<RouterParams> params = new ArrayList<>();
-        HostParams hostParams = hosts.get(parsedUri.getHost());
+        HostParams hostParams = hosts.get(RouterUtils.hostOf(parsedUri));
         if (hostParams == null) {
             throw new RouteNotFoundException("No host found for url " + url);
         }
-        for (Map.Entry<String, RouterOptions> entry : hostParams.getRoutes().entrySet()) {
-            RouterParams routerParams = getRouterParams(entry, givenParts);
+        RouteEntries routes = hostParams.getEntries();
+        for (int i = 0; i < routes.getSize(); i++) {
+            RouterParams routerParams = getRouterParams(routes.getPaths()[i], routes.getSegments()[i],
+                    routes.getOptions()[i], givenParts);
             if (routerParams != null) {
                 params.add(routerParams);
             }
@@ -62,19 +69,17 @@ public class RouterInterceptor implements Interceptor {
         if (routerParams == null) {
             throw new RouteNotFoundException("No params found for url " + url);
         }
-        for (String key : parsedUri.getQueryParameterNames()) {
-            routerParams.getOpenParams().put(key, parsedUri.getQueryParameter(key));
-        }
-        routerParams.getOpenParams().put("targetUrl", url);
+        // query参数不再逐个解码，用到哪个读哪个
+        routerParams.setOpenParams(new ParamMap(url, routerParams.getOpenParams()));
+        routerParams.setHost(RouterUtils.hostOf(parsedUri));
+        routerParams.setRouteEntries(routes);
         Log.i("TestInterceptor", "真实处理的地方");
         return routerParams;
     }
 
-    private RouterParams getRouterParams(Map.Entry<String, RouterOptions> entry, String[] givenParts) {
+    private RouterParams getRouterParams(String path, String[] routerParts, RouterOptions routerOptions,
+                                         String[] givenParts) {
         RouterParams routerParams;
-        String routerUrl = cleanUrl(entry.getKey());
-        RouterOptions routerOptions = entry.getValue();
-        String[] routerParts = routerUrl.split("/");
         if (routerParts.length != givenParts.length) {
             return null;
         }
@@ -88,17 +93,10 @@ public class RouterInterceptor implements Interceptor {
             return null;
         }
         routerParams = new RouterParams();
-        routerParams.setUrl(entry.getKey());
-        routerParams.setWeight(entry.getValue().getWeight());
+        routerParams.setUrl(path);
+        routerParams.setWeight(routerOptions.getWeight());
         routerParams.setOpenParams(givenParams);
         routerParams.setRouterOptions(routerOptions);
         return routerParams;
     }
-
-    private String cleanUrl(String url) {
-        if (url.startsWith("/")) {
-            return url.substring(1);
-        }
-        return url;
-    }
 }
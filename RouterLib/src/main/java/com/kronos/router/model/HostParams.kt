@@ -1,25 +1,224 @@
 package com.kronos.router.model
 
-import java.util.HashMap
+import com.kronos.router.utils.MemoryEstimator
 
 /**
  * Created by zhangyang on 16/7/16.
  */
 class HostParams(val host: String) {
-    val routes = HashMap<String, RouterOptions>()
 
+    /**
+     * 每次修改都会生成新的数组再整体替换，读的一方拿到的永远是完整的一份
+     */
+    @Volatile
+    var entries = RouteEntries.EMPTY
+        private set
+
+    /**
+     * 当前快照的只读视图，不会拷贝；修改路由需要调用setRoute/putRoute/removeRoute
+     */
+    val routes: Map<String, RouterOptions>
+        get() = entries.asMap()
+
+    /**
+     * stageRoute记下来还没合并进entries的路由
+     */
+    private var stagedPaths: ArrayList<String>? = null
+    private var stagedOptions: ArrayList<RouterOptions>? = null
+
+    @Synchronized
     fun setRoute(path: String, options: RouterOptions) {
-        if (routes.containsKey(path)) {
-            val oldOptions = routes[path]
-            if (oldOptions?.weight ?: 0 < options.weight) {
-                routes[path] = options
+        val index = entries.indexOf(path)
+        if (index >= 0) {
+            if (entries.options[index].weight < options.weight) {
+                replace(index, options)
             }
         } else {
-            routes[path] = options
+            insert(-index - 1, path, options)
+        }
+    }
+
+    /**
+     * 不比较weight，直接替换
+     */
+    @Synchronized
+    fun putRoute(path: String, options: RouterOptions) {
+        val index = entries.indexOf(path)
+        if (index >= 0) {
+            replace(index, options)
+        } else {
+            insert(-index - 1, path, options)
+        }
+    }
+
+    /**
+     * 和setRoute规则一样，但是先不生成新数组，flush时排序后一次合并
+     * 模块注册大量路由时用这个，避免每条路由都拷贝一遍数组
+     */
+    @Synchronized
+    fun stageRoute(path: String, options: RouterOptions) {
+        var paths = stagedPaths
+        var staged = stagedOptions
+        if (paths == null || staged == null) {
+            paths = ArrayList()
+            staged = ArrayList()
+            stagedPaths = paths
+            stagedOptions = staged
+        }
+        paths.add(path)
+        staged.add(options)
+    }
+
+    /**
+     * 把stageRoute记下的路由合并进entries，只生成一次新快照
+     */
+    @Synchronized
+    fun flush() {
+        val paths = stagedPaths ?: return
+        val staged = stagedOptions!!
+        stagedPaths = null
+        stagedOptions = null
+        // 按path稳定排序，同一个path保留weight更大的，weight相同时先注册的生效
+        val order = (0 until paths.size).sortedBy { paths[it] }
+        val sortedPaths = ArrayList<String>(order.size)
+        val sortedOptions = ArrayList<RouterOptions>(order.size)
+        for (i in order) {
+            val last = sortedPaths.size - 1
+            if (last >= 0 && sortedPaths[last] == paths[i]) {
+                if (sortedOptions[last].weight < staged[i].weight) {
+                    sortedOptions[last] = staged[i]
+                }
+                continue
+            }
+            sortedPaths.add(paths[i])
+            sortedOptions.add(staged[i])
+        }
+        val segments = Array(sortedPaths.size) { SegmentPool.split(sortedPaths[it]) }
+        merge(RouteEntries(sortedPaths.toTypedArray(), segments, sortedOptions.toTypedArray()))
+    }
+
+    /**
+     * 按setRoute的规则把另一份快照一次合并进来，两边都是有序的，只需要遍历一遍
+     */
+    @Synchronized
+    fun setRoutes(routes: RouteEntries) {
+        merge(routes)
+    }
+
+    @Synchronized
+    fun removeRoute(path: String): RouterOptions? {
+        val current = entries
+        val index = current.indexOf(path)
+        if (index < 0) {
+            return null
         }
+        val size = current.size - 1
+        val paths = arrayOfNulls<String>(size)
+        val segments = arrayOfNulls<Array<String>>(size)
+        val options = arrayOfNulls<RouterOptions>(size)
+        System.arraycopy(current.paths, 0, paths, 0, index)
+        System.arraycopy(current.paths, index + 1, paths, index, size - index)
+        System.arraycopy(current.segments, 0, segments, 0, index)
+        System.arraycopy(current.segments, index + 1, segments, index, size - index)
+        System.arraycopy(current.options, 0, options, 0, index)
+        System.arraycopy(current.options, index + 1, options, index, size - index)
+        publish(paths, segments, options)
+        return current.options[index]
     }
 
     fun getOptions(path: String): RouterOptions? {
-        return routes[path]
+        val current = entries
+        val index = current.indexOf(path)
+        return if (index >= 0) current.options[index] else null
+    }
+
+    /**
+     * 快照本身不可变，拷贝只需要共享同一份
+     */
+    fun copy(): HostParams {
+        val hostParams = HostParams(host)
+        hostParams.entries = entries
+        return hostParams
+    }
+
+    fun estimateBytes(): Long {
+        val current = entries
+        var bytes = MemoryEstimator.instance(2, 0) + MemoryEstimator.string(host)
+        bytes += MemoryEstimator.instance(3, 0) + MemoryEstimator.array(current.size) * 3
+        for (i in 0 until current.size) {
+            bytes += MemoryEstimator.string(current.paths[i])
+            bytes += MemoryEstimator.array(current.segments[i].size)
+            bytes += current.options[i].estimateBytes()
+        }
+        return bytes
+    }
+
+    private fun replace(index: Int, options: RouterOptions) {
+        val current = entries
+        val newOptions = current.options.copyOf()
+        newOptions[index] = options
+        entries = RouteEntries(current.paths, current.segments, newOptions)
+    }
+
+    private fun insert(index: Int, path: String, options: RouterOptions) {
+        val current = entries
+        val size = current.size + 1
+        val paths = arrayOfNulls<String>(size)
+        val segments = arrayOfNulls<Array<String>>(size)
+        val newOptions = arrayOfNulls<RouterOptions>(size)
+        System.arraycopy(current.paths, 0, paths, 0, index)
+        System.arraycopy(current.paths, index, paths, index + 1, current.size - index)
+        System.arraycopy(current.segments, 0, segments, 0, index)
+        System.arraycopy(current.segments, index, segments, index + 1, current.size - index)
+        System.arraycopy(current.options, 0, newOptions, 0, index)
+        System.arraycopy(current.options, index, newOptions, index + 1, current.size - index)
+        paths[index] = path
+        segments[index] = SegmentPool.split(path)
+        newOptions[index] = options
+        publish(paths, segments, newOptions)
+    }
+
+    private fun merge(incoming: RouteEntries) {
+        val current = entries
+        if (incoming.size == 0) {
+            return
+        }
+        if (current.size == 0) {
+            entries = incoming
+            return
+        }
+        val capacity = current.size + incoming.size
+        val paths = arrayOfNulls<String>(capacity)
+        val segments = arrayOfNulls<Array<String>>(capacity)
+        val options = arrayOfNulls<RouterOptions>(capacity)
+        var i = 0
+        var j = 0
+        var size = 0
+        while (i < current.size || j < incoming.size) {
+            val compare = when {
+                i == current.size -> 1
+                j == incoming.size -> -1
+                else -> current.paths[i].compareTo(incoming.paths[j])
+            }
+            if (compare < 0 || compare == 0 && current.options[i].weight >= incoming.options[j].weight) {
+                paths[size] = current.paths[i]
+                segments[size] = current.segments[i]
+                options[size] = current.options[i]
+            } else {
+                paths[size] = incoming.paths[j]
+                segments[size] = incoming.segments[j]
+                options[size] = incoming.options[j]
+            }
+            if (compare <= 0) i++
+            if (compare >= 0) j++
+            size++
+        }
+        publish(paths.copyOf(size), segments.copyOf(size), options.copyOf(size))
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun publish(paths: Array<String?>, segments: Array<Array<String>?>, options: Array<RouterOptions?>) {
+        entries = RouteEntries(paths as Array<String>, segments as Array<Array<String>>,
+                options as Array<RouterOptions>)
     }
 }
@@ -0,0 +1,367 @@
+package com.kronos.router.model;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+
+import com.kronos.router.utils.MemoryEstimator;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 路由参数的懒解析视图，query参数只记录在原始url里的位置，读到哪个key才解码哪个
+ * <p>
+ * 优先级和之前直接put进HashMap时一致：targetUrl > query参数 > 路径参数，
+ * 同名query参数取第一个。遍历、size等需要全部参数的操作会解码一次并缓存结果。
+ * 和以前的HashMap一样可以修改，第一次修改时才复制出一份自己的Map
+ */
+public final class ParamMap extends AbstractMap<String, String> {
+    public static final String TARGET_URL = "targetUrl";
+
+    private final String url;
+    private final int queryStart;
+    private final int queryEnd;
+    private final Map<String, String> pathParams;
+    private volatile Map<String, String> materialized;
+    private Map<String, String> modified;
+    private Set<Entry<String, String>> entrySet;
+
+    private interface Sink {
+        void put(String key, String value);
+    }
+
+    /**
+     * @param pathParams 匹配路由时得到的路径参数，之后不能再修改
+     */
+    public ParamMap(String url, Map<String, String> pathParams) {
+        this.url = url;
+        this.pathParams = pathParams != null ? pathParams : Collections.<String, String>emptyMap();
+        int fragment = url.indexOf('#');
+        int end = fragment < 0 ? url.length() : fragment;
+        int question = url.indexOf('?');
+        if (question < 0 || question >= end) {
+            // 没有query
+            queryStart = -1;
+        } else {
+            queryStart = question + 1;
+        }
+        queryEnd = end;
+    }
+
+    private ParamMap(Map<String, String> params) {
+        this.url = null;
+        this.queryStart = -1;
+        this.queryEnd = 0;
+        this.pathParams = params;
+    }
+
+    private ParamMap(ParamMap source) {
+        this.url = source.url;
+        this.queryStart = source.queryStart;
+        this.queryEnd = source.queryEnd;
+        this.pathParams = source.pathParams;
+        this.materialized = source.materialized;
+        Map<String, String> modified = source.modified;
+        this.modified = modified != null ? new LinkedHashMap<>(modified) : null;
+    }
+
+    /**
+     * 没有url的参数(比如手动构造的RouterContext)包装成同样的视图，传入ParamMap时拷贝一份，修改互不影响
+     */
+    public static ParamMap of(Map<String, String> params) {
+        if (params instanceof ParamMap) {
+            return ((ParamMap) params).copy();
+        }
+        return new ParamMap(new HashMap<>(params));
+    }
+
+    /**
+     * 共用url和已经解码的结果，修改互不影响，缓存里的路由交给调用方前用它拷贝
+     */
+    public ParamMap copy() {
+        return new ParamMap(this);
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        Map<String, String> map = current();
+        if (map != null) {
+            return map.get(key);
+        }
+        if (url != null) {
+            if (TARGET_URL.equals(key)) {
+                return url;
+            }
+            String value = queryParameter((String) key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return pathParams.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Map<String, String> map = modified;
+        return map != null ? map.containsKey(key) : get(key) != null;
+    }
+
+    @Override
+    public String put(String key, String value) {
+        return modified().put(key, value);
+    }
+
+    @Override
+    public String remove(Object key) {
+        return modified().remove(key);
+    }
+
+    @Override
+    public void clear() {
+        modified().clear();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        Set<Entry<String, String>> entries = entrySet;
+        if (entries == null) {
+            entries = new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    Map<String, String> map = modified;
+                    return map != null ? map.size() : materialize().size();
+                }
+            };
+            entrySet = entries;
+        }
+        return entries;
+    }
+
+    /**
+     * 可修改的完整拷贝
+     */
+    public Map<String, String> toMap() {
+        Map<String, String> map = current();
+        return new HashMap<>(map != null ? map : materialize());
+    }
+
+    public Bundle toBundle() {
+        final Bundle bundle = new Bundle();
+        writeTo(new Sink() {
+            @Override
+            public void put(String key, String value) {
+                bundle.putString(key, value);
+            }
+        });
+        return bundle;
+    }
+
+    /**
+     * 直接按原始url里的位置把参数写进intent，不需要先生成完整的Map
+     */
+    public void putInto(final Intent intent) {
+        writeTo(new Sink() {
+            @Override
+            public void put(String key, String value) {
+                intent.putExtra(key, value);
+            }
+        });
+    }
+
+    /**
+     * 只估算这份视图自己的开销，url和缓存的key是同一个字符串，不重复计算
+     */
+    public long estimateBytes() {
+        long bytes = MemoryEstimator.instance(7, 8);
+        Map<String, String> map = current();
+        if (map != null) {
+            return bytes + MemoryEstimator.map(map);
+        }
+        return bytes + (pathParams.isEmpty() ? 0 : MemoryEstimator.map(pathParams));
+    }
+
+    /**
+     * 修改过时返回修改后的Map，解码过时返回缓存的结果，否则返回null
+     */
+    private Map<String, String> current() {
+        Map<String, String> map = modified;
+        return map != null ? map : materialized;
+    }
+
+    private Map<String, String> modified() {
+        Map<String, String> map = modified;
+        if (map == null) {
+            map = new LinkedHashMap<>(materialize());
+            modified = map;
+        }
+        return map;
+    }
+
+    private void writeTo(Sink sink) {
+        Map<String, String> map = current();
+        if (map != null) {
+            for (Entry<String, String> entry : map.entrySet()) {
+                sink.put(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+        for (Entry<String, String> entry : pathParams.entrySet()) {
+            sink.put(entry.getKey(), entry.getValue());
+        }
+        if (url == null) {
+            return;
+        }
+        if (queryStart >= 0) {
+            // 倒着写，同名参数最后写入的是第一个，和get的结果一致
+            int end = queryEnd;
+            if (end > queryStart && url.charAt(end - 1) == '&') {
+                // 末尾的&后面没有内容时正向遍历不会算成参数
+                end--;
+            }
+            while (true) {
+                int start = Math.max(queryStart, url.lastIndexOf('&', end - 1) + 1);
+                int separator = url.indexOf('=', start);
+                if (separator < 0 || separator > end) {
+                    separator = end;
+                }
+                sink.put(Uri.decode(url.substring(start, separator)),
+                        separator == end ? "" : decodeValue(separator + 1, end));
+                if (start == queryStart) {
+                    break;
+                }
+                end = start - 1;
+            }
+        }
+        sink.put(TARGET_URL, url);
+    }
+
+    private Map<String, String> materialize() {
+        Map<String, String> map = materialized;
+        if (map != null) {
+            return map;
+        }
+        map = new LinkedHashMap<>(pathParams);
+        if (url != null) {
+            Set<String> seen = new HashSet<>();
+            int start = queryStart;
+            // 和Uri一样用do-while，只有一个?时也算一个空参数名
+            while (start >= 0) {
+                int end = url.indexOf('&', start);
+                if (end < 0 || end > queryEnd) {
+                    end = queryEnd;
+                }
+                int separator = url.indexOf('=', start);
+                if (separator < 0 || separator > end) {
+                    separator = end;
+                }
+                String name = Uri.decode(url.substring(start, separator));
+                if (seen.add(name)) {
+                    map.put(name, separator == end ? "" : decodeValue(separator + 1, end));
+                }
+                start = end + 1 < queryEnd ? end + 1 : -1;
+            }
+            map.put(TARGET_URL, url);
+        }
+        map = Collections.unmodifiableMap(map);
+        materialized = map;
+        return map;
+    }
+
+    /**
+     * 和Uri.getQueryParameter一致：key编码之后和原始参数名比较，只解码命中的那个值
+     */
+    private String queryParameter(String key) {
+        String encodedKey = Uri.encode(key, null);
+        int length = encodedKey.length();
+        int start = queryStart;
+        while (start >= 0) {
+            int end = url.indexOf('&', start);
+            if (end < 0 || end > queryEnd) {
+                end = queryEnd;
+            }
+            int separator = url.indexOf('=', start);
+            if (separator < 0 || separator > end) {
+                separator = end;
+            }
+            if (separator - start == length && url.regionMatches(start, encodedKey, 0, length)) {
+                return separator == end ? "" : decodeValue(separator + 1, end);
+            }
+            start = end + 1 < queryEnd ? end + 1 : -1;
+        }
+        return null;
+    }
+
+    private String decodeValue(int start, int end) {
+        String raw = url.substring(start, end);
+        if (raw.indexOf('%') < 0 && raw.indexOf('+') < 0) {
+            return raw;
+        }
+        // query里的+表示空格，先替换再解码，%2B才会还原成+
+        return Uri.decode(raw.replace('+', ' '));
+    }
+
+    /**
+     * 修改之前遍历的是解码缓存，remove/setValue时切换到自己的Map，当前遍历不受影响
+     */
+    private final class EntryIterator implements Iterator<Entry<String, String>> {
+        private final Iterator<Entry<String, String>> iterator;
+        private final boolean snapshot;
+        private Entry<String, String> last;
+
+        EntryIterator() {
+            Map<String, String> map = modified;
+            snapshot = map == null;
+            iterator = snapshot ? materialize().entrySet().iterator() : map.entrySet().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Entry<String, String> next() {
+            final Entry<String, String> entry = iterator.next();
+            last = entry;
+            if (!snapshot) {
+                return entry;
+            }
+            return new SimpleEntry<String, String>(entry) {
+                @Override
+                public String setValue(String value) {
+                    ParamMap.this.put(entry.getKey(), value);
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            if (snapshot) {
+                modified().remove(last.getKey());
+            } else {
+                iterator.remove();
+            }
+            last = null;
+        }
+    }
+}
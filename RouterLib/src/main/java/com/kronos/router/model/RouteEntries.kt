@@ -0,0 +1,60 @@
+package com.kronos.router.model
+
+/**
+ * 一个host下所有路由的不可变快照，按path排序，三个数组下标一一对应
+ * 数组只允许读取，修改需要通过HostParams生成新的快照
+ */
+class RouteEntries internal constructor(val paths: Array<String>,
+                                        val segments: Array<Array<String>>,
+                                        val options: Array<RouterOptions>) {
+    val size: Int
+        get() = paths.size
+
+    @Volatile
+    private var view: Map<String, RouterOptions>? = null
+
+    fun indexOf(path: String): Int {
+        return java.util.Arrays.binarySearch(paths, path)
+    }
+
+    /**
+     * 只读的Map视图，直接读数组不拷贝，java侧调用put/remove会抛UnsupportedOperationException
+     */
+    fun asMap(): Map<String, RouterOptions> {
+        var map = view
+        if (map == null) {
+            map = EntriesMap(this)
+            view = map
+        }
+        return map
+    }
+
+    private class EntriesMap(private val source: RouteEntries) : AbstractMap<String, RouterOptions>() {
+
+        override val size: Int
+            get() = source.size
+
+        override fun containsKey(key: String): Boolean = source.indexOf(key) >= 0
+
+        override fun get(key: String): RouterOptions? {
+            val index = source.indexOf(key)
+            return if (index >= 0) source.options[index] else null
+        }
+
+        override val entries: Set<Map.Entry<String, RouterOptions>> = object : AbstractSet<Map.Entry<String, RouterOptions>>() {
+            override val size: Int
+                get() = source.size
+
+            override fun iterator(): Iterator<Map.Entry<String, RouterOptions>> {
+                return (0 until source.size).asSequence()
+                        .map { java.util.AbstractMap.SimpleImmutableEntry(source.paths[it], source.options[it]) }
+                        .iterator()
+            }
+        }
+    }
+
+    companion object {
+        @JvmField
+        val EMPTY = RouteEntries(emptyArray(), emptyArray(), emptyArray())
+    }
+}
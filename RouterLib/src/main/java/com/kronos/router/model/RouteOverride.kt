@@ -0,0 +1,10 @@
+package com.kronos.router.model
+
+/**
+ * 线上临时修改路由用，target/redirect/disable三选一
+ * url为路由模板，例如 https://www.baidu.com/:id{string}
+ */
+data class RouteOverride(val url: String,
+                         val target: String? = null,
+                         val redirect: String? = null,
+                         val disable: Boolean = false)
@@ -0,0 +1,20 @@
+package com.kronos.router.model
+
+/**
+ * Router.cacheStats()的结果，hits和misses是累计值
+ */
+class RouterCacheStats(val hits: Long,
+                       val misses: Long,
+                       val size: Int) {
+
+    val hitRate: Double
+        get() = if (hits + misses == 0L) 0.0 else hits.toDouble() / (hits + misses)
+
+    operator fun minus(other: RouterCacheStats): RouterCacheStats {
+        return RouterCacheStats(hits - other.hits, misses - other.misses, size)
+    }
+
+    override fun toString(): String {
+        return "RouterCacheStats(hits=$hits, misses=$misses, size=$size, hitRate=$hitRate)"
+    }
+}
@@ -0,0 +1,16 @@
+package com.kronos.router.model
+
+/**
+ * Router.memoryStats()的结果，都是估算值，单位byte
+ */
+class RouterMemoryStats(val hostBytes: Map<String, Long>,
+                        val segmentBytes: Long,
+                        val cacheBytes: Map<String, Long>) {
+
+    val totalBytes: Long
+        get() = hostBytes.values.sum() + segmentBytes + cacheBytes.values.sum()
+
+    override fun toString(): String {
+        return "RouterMemoryStats(total=$totalBytes, segments=$segmentBytes, hosts=$hostBytes, caches=$cacheBytes)"
+    }
+}
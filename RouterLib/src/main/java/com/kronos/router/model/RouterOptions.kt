@@ -1,40 +1,183 @@
 package com.kronos.router.model
 
 import android.app.Activity
+import android.content.ComponentName
+import android.content.Context
+import android.content.Intent
 import android.os.Bundle
 
 import com.kronos.router.RouterCallback
+import com.kronos.router.interceptor.RoutePipeline
+import com.kronos.router.utils.MemoryEstimator
+import com.kronos.router.utils.StripedCounter
 
 /**
  * Created by zhangyang on 16/7/16.
  */
 class RouterOptions {
 
-    var openClass: Class<out Activity>? = null
+    /**
+     * 路由只保存Activity的类名，打开时用setClassName，不需要提前加载类
+     */
+    var openClassName: String? = null
+        set(value) {
+            field = value
+            resolvedClass = null
+            intentTemplate = null
+        }
+
+    @Volatile
+    private var resolvedClass: Class<out Activity>? = null
+
+    @Suppress("UNCHECKED_CAST")
+    var openClass: Class<out Activity>?
+        get() {
+            var clazz = resolvedClass
+            if (clazz == null) {
+                val name = openClassName ?: return null
+                clazz = Class.forName(name, false, RouterOptions::class.java.classLoader) as Class<out Activity>
+                resolvedClass = clazz
+            }
+            return clazz
+        }
+        set(value) {
+            openClassName = value?.name
+            resolvedClass = value
+        }
     var callback: RouterCallback? = null
-    private val _defaultParams: Bundle by lazy {
-        Bundle()
-    }
+    private var _defaultParams: Bundle? = null
     var weight = 0
+    var redirectUrl: String? = null
+    var isDisabled = false
+    var flags = 0
+        set(value) {
+            field = value
+            intentTemplate = null
+        }
 
-    var defaultParams: Bundle?
-        get() = this._defaultParams
-        set(defaultParams) {
+    /**
+     * 路由对应的Intent模板，component/flags/默认参数都已经写好，open时只需要clone一份
+     */
+    @Volatile
+    private var intentTemplate: Intent? = null
+
+    /**
+     * 第一次命中时才创建，没有被打开过的路由不占用计数器
+     */
+    @Volatile
+    private var hitCounter: StripedCounter? = null
+
+    val hits: Long
+        get() = hitCounter?.sum() ?: 0
 
-            _defaultParams.putAll(defaultParams)
+    /**
+     * 由RealCall计算并缓存这个路由命中的局部拦截器
+     */
+    @Volatile
+    var pipeline: RoutePipeline? = null
 
+    /**
+     * 和以前一样不会返回null，第一次读取时才创建Bundle，没有默认参数的路由不占用
+     * 拿到的Bundle可以直接修改，所以读取时会让intent模板失效
+     */
+    var defaultParams: Bundle?
+        get() {
+            var params = _defaultParams
+            if (params == null) {
+                params = Bundle()
+                _defaultParams = params
+            }
+            intentTemplate = null
+            return params
+        }
+        set(defaultParams) {
+            if (defaultParams == null || defaultParams.isEmpty) {
+                return
+            }
+            val params = _defaultParams
+            if (params == null) {
+                _defaultParams = Bundle(defaultParams)
+            } else {
+                params.putAll(defaultParams)
+            }
+            intentTemplate = null
         }
 
     constructor() {
 
     }
 
-    constructor(defaultParams: Bundle) {
+    constructor(defaultParams: Bundle?) {
         this.defaultParams = defaultParams
     }
 
 
+    val hasDefaultParams: Boolean
+        get() = _defaultParams?.isEmpty == false
+
     fun putParams(key: String, value: String) {
-        _defaultParams.putString(key, value)
+        var params = _defaultParams
+        if (params == null) {
+            params = Bundle()
+            _defaultParams = params
+        }
+        params.putString(key, value)
+        intentTemplate = null
+    }
+
+    fun recordHit() {
+        var counter = hitCounter
+        if (counter == null) {
+            synchronized(this) {
+                counter = hitCounter
+                if (counter == null) {
+                    counter = StripedCounter()
+                    hitCounter = counter
+                }
+            }
+        }
+        counter!!.increment()
+    }
+
+    fun copy(): RouterOptions {
+        val options = RouterOptions()
+        options.openClassName = openClassName
+        options.callback = callback
+        options.weight = weight
+        options.flags = flags
+        options.redirectUrl = redirectUrl
+        options.isDisabled = isDisabled
+        options.defaultParams = _defaultParams
+        return options
+    }
+
+    fun estimateBytes(): Long {
+        var bytes = MemoryEstimator.instance(10, 12)
+        bytes += MemoryEstimator.string(openClassName) + MemoryEstimator.string(redirectUrl)
+        bytes += MemoryEstimator.bundle(_defaultParams)
+        if (hitCounter != null) {
+            bytes += MemoryEstimator.STRIPED_COUNTER
+        }
+        return bytes
+    }
+
+    /**
+     * 返回的模板不能被修改，使用方需要 Intent(template) 拷贝一份
+     */
+    fun intentTemplate(context: Context): Intent {
+        var template = intentTemplate
+        if (template == null) {
+            template = Intent()
+            template.component = ComponentName(context, openClassName!!)
+            if (flags != 0) {
+                template.addFlags(flags)
+            }
+            val params = _defaultParams
+            if (params != null && !params.isEmpty) {
+                template.putExtras(params)
+            }
+            intentTemplate = template
+        }
+        return template
     }
 }
@@ -5,10 +5,30 @@ package com.kronos.router.model
  */
 class RouterParams {
     var url: String? = null
+    var host: String? = null
     var weight: Int = 0
     var routerOptions: RouterOptions? = null
     var openParams: Map<String, String>? = null
 
+    /**
+     * 匹配时使用的路由表快照，host的路由有任何修改都会换成新的快照，缓存靠它判断是否过期
+     */
+    var routeEntries: RouteEntries? = null
+
+    /**
+     * 缓存里的实例不能交给调用方，openParams可能被回调修改，ParamMap的拷贝共用url和解码结果
+     */
+    fun copy(): RouterParams {
+        val params = RouterParams()
+        params.url = url
+        params.host = host
+        params.weight = weight
+        params.routerOptions = routerOptions
+        params.openParams = openParams?.let { if (it is ParamMap) it.copy() else HashMap(it) }
+        params.routeEntries = routeEntries
+        return params
+    }
+
     val realPath: String
         get() {
             try {
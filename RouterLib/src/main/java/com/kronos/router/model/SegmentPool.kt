@@ -0,0 +1,35 @@
+package com.kronos.router.model
+
+import com.kronos.router.utils.MemoryEstimator
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * 路由path拆分后的片段全局复用，同样的片段("detail"、":id{long}"等)只保留一份
+ */
+object SegmentPool {
+    private val segments = ConcurrentHashMap<String, String>()
+
+    @JvmStatic
+    fun split(path: String): Array<String> {
+        val cleanPath = if (path.startsWith("/")) path.substring(1) else path
+        val parts = cleanPath.split("/").toTypedArray()
+        for (i in parts.indices) {
+            parts[i] = intern(parts[i])
+        }
+        return parts
+    }
+
+    @JvmStatic
+    fun intern(segment: String): String {
+        return segments.putIfAbsent(segment, segment) ?: segment
+    }
+
+    @JvmStatic
+    fun estimateBytes(): Long {
+        var bytes = MemoryEstimator.instance(4, 16) + MemoryEstimator.array(segments.size * 2)
+        for (segment in segments.keys) {
+            bytes += MemoryEstimator.instance(4, 4) + MemoryEstimator.string(segment)
+        }
+        return bytes
+    }
+}
@@ -0,0 +1,193 @@
+package com.kronos.router.module;
+
+import android.net.Uri;
+import android.util.Log;
+
+import com.kronos.router.exception.ModuleInitException;
+import com.kronos.router.model.HostParams;
+import com.kronos.router.utils.RouterUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * 负责执行各个模块的RouterInit，设置了线程池时并行执行
+ * <p>
+ * 模块的路由先写进当前线程的临时表，全部注册完再一次合并到路由表；
+ * 并行时open的url如果属于还没初始化完的模块，只等待负责这个host的模块
+ */
+public class ModuleLoader {
+    private static final String TAG = "ModuleLoader";
+    private static final ThreadLocal<Map<String, HostParams>> STAGING = new ThreadLocal<>();
+
+    public interface TableMerger {
+        void merge(Map<String, HostParams> staged);
+    }
+
+    private final Object lock = new Object();
+    private final Map<String, List<CountDownLatch>> pendingHosts = new HashMap<>();
+    private final List<Runnable> idleActions = new ArrayList<>();
+    private volatile int pendingModules;
+    /**
+     * 初始化失败的模块负责的host，写时整体替换
+     */
+    private volatile Map<String, ModuleInitException> failedHosts = new HashMap<>();
+    private volatile Executor executor;
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 当前线程正在初始化某个模块时返回它的临时表，否则返回null
+     */
+    public static Map<String, HostParams> stagingTable() {
+        return STAGING.get();
+    }
+
+    public void load(final String name, final String[] hosts, final Runnable routes, final TableMerger merger) {
+        Executor executor = this.executor;
+        if (executor == null) {
+            // 串行初始化也先写临时表，整个模块的路由一次合并
+            Map<String, HostParams> staged = new HashMap<>();
+            STAGING.set(staged);
+            try {
+                routes.run();
+            } finally {
+                STAGING.remove();
+            }
+            merger.merge(staged);
+            return;
+        }
+        final CountDownLatch latch = new CountDownLatch(1);
+        synchronized (lock) {
+            pendingModules++;
+            for (String host : hosts) {
+                List<CountDownLatch> latches = pendingHosts.get(host);
+                if (latches == null) {
+                    latches = new ArrayList<>();
+                    pendingHosts.put(host, latches);
+                }
+                latches.add(latch);
+            }
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Map<String, HostParams> staged = new HashMap<>();
+                STAGING.set(staged);
+                try {
+                    routes.run();
+                    merger.merge(staged);
+                } catch (Throwable e) {
+                    Log.e(TAG, "init module " + name + " failed", e);
+                    fail(name, hosts, e);
+                } finally {
+                    STAGING.remove();
+                    finish(hosts, latch);
+                }
+            }
+        });
+    }
+
+    private void fail(String name, String[] hosts, Throwable cause) {
+        ModuleInitException exception = new ModuleInitException("init module " + name + " failed", cause);
+        synchronized (lock) {
+            Map<String, ModuleInitException> failed = new HashMap<>(failedHosts);
+            for (String host : hosts) {
+                failed.put(host, exception);
+            }
+            failedHosts = failed;
+        }
+    }
+
+    private void finish(String[] hosts, CountDownLatch latch) {
+        List<Runnable> actions = null;
+        synchronized (lock) {
+            for (String host : hosts) {
+                List<CountDownLatch> latches = pendingHosts.get(host);
+                if (latches != null) {
+                    latches.remove(latch);
+                    if (latches.isEmpty()) {
+                        pendingHosts.remove(host);
+                    }
+                }
+            }
+            if (--pendingModules == 0 && !idleActions.isEmpty()) {
+                actions = new ArrayList<>(idleActions);
+                idleActions.clear();
+            }
+        }
+        latch.countDown();
+        if (actions != null) {
+            for (Runnable action : actions) {
+                action.run();
+            }
+        }
+    }
+
+    /**
+     * 没有正在初始化的模块并且没有失败的模块时不会解析url
+     */
+    public void awaitUrl(String url) {
+        if (pendingModules == 0 && failedHosts.isEmpty()) {
+            return;
+        }
+        awaitHost(RouterUtils.hostOf(Uri.parse(url)));
+    }
+
+    /**
+     * 负责这个host的模块初始化失败时抛出ModuleInitException，而不是当成路由不存在
+     */
+    public void awaitHost(String host) {
+        if (pendingModules != 0) {
+            waitFor(host);
+        }
+        ModuleInitException failure = failedHosts.get(host);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void waitFor(String host) {
+        List<CountDownLatch> latches;
+        synchronized (lock) {
+            List<CountDownLatch> pending = pendingHosts.get(host);
+            if (pending == null) {
+                return;
+            }
+            latches = new ArrayList<>(pending);
+        }
+        try {
+            for (CountDownLatch latch : latches) {
+                latch.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 有模块初始化失败时路由表不完整，不能写进路由快照
+     */
+    public boolean hasFailures() {
+        return !failedHosts.isEmpty();
+    }
+
+    /**
+     * 所有模块初始化完成后执行，当前没有正在初始化的模块时直接在调用线程执行
+     */
+    public void whenIdle(Runnable action) {
+        synchronized (lock) {
+            if (pendingModules > 0) {
+                idleActions.add(action);
+                return;
+            }
+        }
+        action.run();
+    }
+}
@@ -0,0 +1,205 @@
+package com.kronos.router.override;
+
+import android.net.Uri;
+
+import com.kronos.router.model.HostParams;
+import com.kronos.router.model.RouteOverride;
+import com.kronos.router.model.RouterOptions;
+import com.kronos.router.utils.RouterUtils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 记录当前生效的路由覆盖以及被覆盖前的原始路由，每次apply只和上一次的结果做diff
+ * <p>
+ * 文件格式:
+ * <pre>
+ * {"overrides": [
+ *   {"url": "https://www.baidu.com/test", "target": "com.kronos.sample.NewActivity"},
+ *   {"url": "https://www.baidu.com/old", "redirect": "https://www.baidu.com/new"},
+ *   {"url": "https://www.baidu.com/broken", "disable": true}
+ * ]}
+ * </pre>
+ */
+public class RouteOverrides {
+
+    private final Map<String, RouteOverride> applied = new HashMap<>();
+    private final Map<String, RouterOptions> originals = new HashMap<>();
+
+    public static List<RouteOverride> parse(File file) throws IOException {
+        List<RouteOverride> overrides = new ArrayList<>();
+        try {
+            JSONObject root = new JSONObject(readFile(file));
+            JSONArray array = root.optJSONArray("overrides");
+            if (array == null) {
+                return overrides;
+            }
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject item = array.getJSONObject(i);
+                overrides.add(new RouteOverride(item.getString("url"),
+                        item.has("target") ? item.getString("target") : null,
+                        item.has("redirect") ? item.getString("redirect") : null,
+                        item.optBoolean("disable")));
+            }
+        } catch (JSONException e) {
+            throw new IOException("Invalid route override file " + file, e);
+        }
+        return overrides;
+    }
+
+    private static String readFile(File file) throws IOException {
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toString("UTF-8");
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * 根据diff生成新的路由表，只有受影响的host会被拷贝，其余host直接复用
+     * <p>
+     * 这里不修改当前记录的覆盖状态，新路由表发布之后再调用{@link #commit(Plan)}，
+     * 中途出错时旧的路由表和覆盖记录都保持不变
+     */
+    public Plan plan(Map<String, HostParams> live, List<RouteOverride> overrides) {
+        Map<String, RouteOverride> desired = new LinkedHashMap<>();
+        for (RouteOverride override : overrides) {
+            desired.put(key(Uri.parse(override.getUrl())), override);
+        }
+        Map<String, RouteOverride> nextApplied = new HashMap<>(applied);
+        Map<String, RouterOptions> nextOriginals = new HashMap<>(originals);
+        Map<String, HostParams> copies = new HashMap<>();
+        Iterator<Map.Entry<String, RouteOverride>> iterator = nextApplied.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, RouteOverride> entry = iterator.next();
+            if (desired.containsKey(entry.getKey())) {
+                continue;
+            }
+            // 新文件里已经没有这条覆盖了，恢复原始路由
+            Uri uri = Uri.parse(entry.getValue().getUrl());
+            HostParams hostParams = hostCopy(live, copies, RouterUtils.hostOf(uri));
+            RouterOptions original = nextOriginals.remove(entry.getKey());
+            if (original != null) {
+                hostParams.putRoute(uri.getPath(), original);
+            } else {
+                hostParams.removeRoute(uri.getPath());
+            }
+            iterator.remove();
+        }
+        for (Map.Entry<String, RouteOverride> entry : desired.entrySet()) {
+            RouteOverride override = entry.getValue();
+            if (override.equals(nextApplied.get(entry.getKey()))) {
+                continue;
+            }
+            Uri uri = Uri.parse(override.getUrl());
+            HostParams hostParams = hostCopy(live, copies, RouterUtils.hostOf(uri));
+            if (!nextOriginals.containsKey(entry.getKey())) {
+                nextOriginals.put(entry.getKey(), hostParams.getOptions(uri.getPath()));
+            }
+            hostParams.putRoute(uri.getPath(), toOptions(override, nextOriginals.get(entry.getKey())));
+            nextApplied.put(entry.getKey(), override);
+        }
+        Map<String, HostParams> table = live;
+        if (!copies.isEmpty()) {
+            table = new ConcurrentHashMap<>(live);
+            table.putAll(copies);
+        }
+        return new Plan(table, copies.keySet(), nextApplied, nextOriginals);
+    }
+
+    /**
+     * 当前被覆盖的路由和覆盖之前的配置，key为host+path，覆盖新增的路由值为null
+     */
+    public Map<String, RouterOptions> overriddenRoutes() {
+        return new HashMap<>(originals);
+    }
+
+    /**
+     * plan生成的路由表已经发布，记录新的覆盖状态
+     */
+    public void commit(Plan plan) {
+        applied.clear();
+        applied.putAll(plan.applied);
+        originals.clear();
+        originals.putAll(plan.originals);
+    }
+
+    private static HostParams hostCopy(Map<String, HostParams> live, Map<String, HostParams> copies, String host) {
+        HostParams hostParams = copies.get(host);
+        if (hostParams == null) {
+            HostParams source = live.get(host);
+            hostParams = source != null ? source.copy() : new HostParams(host);
+            copies.put(host, hostParams);
+        }
+        return hostParams;
+    }
+
+    private static RouterOptions toOptions(RouteOverride override, RouterOptions original) {
+        RouterOptions options = original != null ? original.copy() : new RouterOptions();
+        if (override.getDisable()) {
+            options.setDisabled(true);
+        } else if (override.getRedirect() != null) {
+            options.setRedirectUrl(override.getRedirect());
+        } else if (override.getTarget() != null) {
+            options.setCallback(null);
+            options.setOpenClassName(override.getTarget());
+        }
+        return options;
+    }
+
+    private static String key(Uri uri) {
+        return RouterUtils.hostOf(uri) + uri.getPath();
+    }
+
+    public static final class Plan {
+        private final Map<String, HostParams> table;
+        private final Set<String> affectedHosts;
+        private final Map<String, RouteOverride> applied;
+        private final Map<String, RouterOptions> originals;
+
+        Plan(Map<String, HostParams> table, Set<String> affectedHosts, Map<String, RouteOverride> applied,
+             Map<String, RouterOptions> originals) {
+            this.table = table;
+            this.affectedHosts = affectedHosts;
+            this.applied = applied;
+            this.originals = originals;
+        }
+
+        /**
+         * 没有受影响的host时就是传入的路由表本身
+         */
+        public Map<String, HostParams> getTable() {
+            return table;
+        }
+
+        /**
+         * 为空时表示没有任何变化
+         */
+        public Set<String> getAffectedHosts() {
+            return affectedHosts;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.kronos.router.prewarm;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+
+import com.kronos.router.LazyRouterCallback;
+import com.kronos.router.RouterCallback;
+import com.kronos.router.model.HostParams;
+import com.kronos.router.model.RouteEntries;
+import com.kronos.router.model.RouterOptions;
+import com.kronos.router.utils.ProcessUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录最常打开的路由模板，下次冷启动在后台提前加载这些路由的目标类
+ * <p>
+ * 文件每行: host \t path \t hits，上一次的次数减半后和本次合并，避免很久以前的热点一直留着
+ * 除了定期保存，app退到后台时也保存一次，不到一个保存周期的短会话也能记下来
+ */
+public class HotRoutes {
+    private static final String TAG = "HotRoutes";
+    private static final String HOT_ROUTE_FILE = "router/hot_routes%s";
+    private static final long SAVE_INTERVAL_SECONDS = 60;
+
+    public interface TableProvider {
+        Map<String, HostParams> getHosts();
+    }
+
+    private final Context context;
+    private final File file;
+    private final int topN;
+    private final TableProvider tableProvider;
+    private final Map<String, Long> previousHits = new HashMap<>();
+    private ScheduledExecutorService executor;
+
+    public HotRoutes(Context context, int topN, TableProvider tableProvider) {
+        this.context = context;
+        this.file = new File(context.getFilesDir(),
+                String.format(HOT_ROUTE_FILE, ProcessUtils.processFileSuffix(context)));
+        this.topN = topN;
+        this.tableProvider = tableProvider;
+    }
+
+    /**
+     * 在后台线程加载上次记录的热点路由并预热，然后开始定期保存
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "router-prewarm");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                prewarm();
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                save();
+            }
+        }, SAVE_INTERVAL_SECONDS, SAVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        context.getApplicationContext().registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_UI_HIDDEN) {
+                    saveAsync();
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+            }
+        });
+    }
+
+    /**
+     * 和定期保存在同一个线程上执行，previousHits只在这个线程读写
+     */
+    synchronized void saveAsync() {
+        if (executor == null) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                save();
+            }
+        });
+    }
+
+    void prewarm() {
+        previousHits.putAll(read());
+        Map<String, HostParams> hosts = tableProvider.getHosts();
+        for (String key : previousHits.keySet()) {
+            int split = key.indexOf('\t');
+            HostParams hostParams = hosts.get(key.substring(0, split));
+            RouterOptions options = hostParams == null ? null : hostParams.getOptions(key.substring(split + 1));
+            if (options != null) {
+                warm(options);
+            }
+        }
+    }
+
+    private void warm(RouterOptions options) {
+        try {
+            RouterCallback callback = options.getCallback();
+            if (callback instanceof LazyRouterCallback) {
+                // 只加载工厂会创建的回调类，不执行静态初始化，实例还是留给第一次open创建
+                String target = ((LazyRouterCallback) callback).getTargetClassName();
+                if (target != null) {
+                    Class.forName(target, false, HotRoutes.class.getClassLoader());
+                }
+            } else if (callback == null && options.getOpenClassName() != null) {
+                options.getOpenClass();
+                options.intentTemplate(context);
+            }
+        } catch (Throwable e) {
+            Log.w(TAG, "prewarm failed " + options.getOpenClassName(), e);
+        }
+    }
+
+    void save() {
+        Map<String, Long> hits = new HashMap<>();
+        for (Map.Entry<String, Long> entry : previousHits.entrySet()) {
+            hits.put(entry.getKey(), entry.getValue() / 2);
+        }
+        for (HostParams hostParams : tableProvider.getHosts().values()) {
+            RouteEntries routes = hostParams.getEntries();
+            for (int i = 0; i < routes.getSize(); i++) {
+                long count = routes.getOptions()[i].getHits();
+                if (count > 0) {
+                    String key = hostParams.getHost() + '\t' + routes.getPaths()[i];
+                    Long previous = hits.get(key);
+                    hits.put(key, previous == null ? count : previous + count);
+                }
+            }
+        }
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(hits.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+            @Override
+            public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+                return o2.getValue().compareTo(o1.getValue());
+            }
+        });
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            tmp.getParentFile().mkdirs();
+            Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+            try {
+                for (int i = 0; i < entries.size() && i < topN; i++) {
+                    Map.Entry<String, Long> entry = entries.get(i);
+                    if (entry.getValue() > 0) {
+                        writer.write(entry.getKey() + '\t' + entry.getValue() + '\n');
+                    }
+                }
+            } finally {
+                writer.close();
+            }
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Map<String, Long> read() {
+        Map<String, Long> hits = new LinkedHashMap<>();
+        if (!file.exists()) {
+            return hits;
+        }
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int split = line.lastIndexOf('\t');
+                    if (split <= 0 || line.indexOf('\t') == split) {
+                        continue;
+                    }
+                    hits.put(line.substring(0, split), Long.parseLong(line.substring(split + 1)));
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+        }
+        return hits;
+    }
+}
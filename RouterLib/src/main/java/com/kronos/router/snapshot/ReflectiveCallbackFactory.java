@@ -0,0 +1,31 @@
+package com.kronos.router.snapshot;
+
+import com.kronos.router.RouterCallback;
+import com.kronos.router.RouterCallbackFactory;
+
+/**
+ * 从快照恢复的回调只有类名，第一次open时再创建
+ * 类名可以是生成的CallbackFactory，也可以是直接实现RouterCallback的调用桩
+ */
+class ReflectiveCallbackFactory implements RouterCallbackFactory {
+    private final String className;
+    private final boolean isFactory;
+
+    ReflectiveCallbackFactory(String className, boolean isFactory) {
+        this.className = className;
+        this.isFactory = isFactory;
+    }
+
+    @Override
+    public RouterCallback create() {
+        try {
+            Object instance = Class.forName(className).newInstance();
+            if (isFactory) {
+                return ((RouterCallbackFactory) instance).create();
+            }
+            return (RouterCallback) instance;
+        } catch (Exception e) {
+            throw new IllegalStateException("Can not create router callback " + className, e);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.kronos.router.snapshot;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.util.Log;
+
+import com.kronos.router.LazyRouterCallback;
+import com.kronos.router.RouterCallback;
+import com.kronos.router.RouterInject;
+import com.kronos.router.model.HostParams;
+import com.kronos.router.model.RouteEntries;
+import com.kronos.router.model.RouterOptions;
+import com.kronos.router.utils.ProcessUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 把注册完成的路由表写成二进制文件，下次启动key一致时直接mmap读取，不再执行RouterInit
+ * <p>
+ * key由versionCode、安装时间、buildId和进程名组成，任何一项变化都会回退到正常注册
+ * 无法序列化的路由(匿名回调、非基本类型的默认参数)会让本次快照放弃写入
+ */
+public class RouteSnapshot {
+    private static final String TAG = "RouteSnapshot";
+    private static final String SNAPSHOT_FILE = "router/route_table%s.snapshot";
+    private static final int MAGIC = 0x4B525254;
+    private static final int FORMAT_VERSION = 2;
+
+    private static final byte KIND_ACTIVITY = 0;
+    private static final byte KIND_FACTORY = 1;
+    private static final byte KIND_CALLBACK = 2;
+
+    private static final byte TYPE_STRING = 0;
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_BOOLEAN = 3;
+
+    private final File file;
+    private final String key;
+
+    RouteSnapshot(File file, String key) {
+        this.file = file;
+        this.key = key;
+    }
+
+    @SuppressWarnings("deprecation")
+    public static RouteSnapshot create(Context context, String buildId) {
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+            // 每个进程注册的模块不同，分开保存
+            String key = info.versionCode + ":" + info.lastUpdateTime + ":" + buildId
+                    + ":" + ProcessUtils.currentProcessName(context);
+            String fileName = String.format(SNAPSHOT_FILE, ProcessUtils.processFileSuffix(context));
+            return new RouteSnapshot(new File(context.getFilesDir(), fileName), key);
+        } catch (PackageManager.NameNotFoundException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @return key不匹配或者文件损坏时返回null
+     */
+    public Map<String, HostParams> load() {
+        if (!file.exists()) {
+            return null;
+        }
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "r");
+            FileChannel channel = randomAccessFile.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION || !key.equals(readString(buffer))) {
+                return null;
+            }
+            Map<String, HostParams> hosts = new HashMap<>();
+            // 生成代码里同一个回调的多个url共用一个LazyRouterCallback，单例回调恢复之后也要共用
+            Map<String, LazyRouterCallback> callbacks = new HashMap<>();
+            int hostCount = buffer.getInt();
+            for (int i = 0; i < hostCount; i++) {
+                HostParams hostParams = new HostParams(readString(buffer));
+                int routeCount = buffer.getInt();
+                for (int j = 0; j < routeCount; j++) {
+                    String path = readString(buffer);
+                    hostParams.stageRoute(path, readOptions(buffer, callbacks));
+                }
+                hostParams.flush();
+                hosts.put(hostParams.getHost(), hostParams);
+            }
+            int injectorCount = buffer.getInt();
+            for (int i = 0; i < injectorCount; i++) {
+                RouterInject.register(readString(buffer), readString(buffer));
+            }
+            return hosts;
+        } catch (Exception e) {
+            Log.w(TAG, "Drop broken route snapshot", e);
+            file.delete();
+            return null;
+        } finally {
+            if (randomAccessFile != null) {
+                try {
+                    randomAccessFile.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 在调用线程上序列化，写文件放到后台线程
+     */
+    public void saveAsync(Map<String, HostParams> hosts) {
+        saveAsync(hosts, Collections.<String, RouterOptions>emptyMap());
+    }
+
+    /**
+     * @param overridden 被下发配置覆盖的路由，key为host+path，值为覆盖之前的配置，快照里写覆盖之前的配置；
+     *                   值为null时覆盖的时候还没有这个路由，并行初始化时分不清是不是模块稍后注册的，放弃写入
+     */
+    public void saveAsync(Map<String, HostParams> hosts, Map<String, RouterOptions> overridden) {
+        final byte[] bytes;
+        try {
+            bytes = serialize(hosts, overridden);
+        } catch (UnsupportedRouteException e) {
+            Log.i(TAG, "Route table can not be saved: " + e.getMessage());
+            return;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                write(bytes);
+            }
+        }, "router-snapshot").start();
+    }
+
+    void write(byte[] bytes) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            tmp.getParentFile().mkdirs();
+            FileOutputStream outputStream = new FileOutputStream(tmp);
+            try {
+                outputStream.write(bytes);
+                outputStream.getFD().sync();
+            } finally {
+                outputStream.close();
+            }
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            tmp.delete();
+        }
+    }
+
+    byte[] serialize(Map<String, HostParams> hosts) throws IOException, UnsupportedRouteException {
+        return serialize(hosts, Collections.<String, RouterOptions>emptyMap());
+    }
+
+    byte[] serialize(Map<String, HostParams> hosts, Map<String, RouterOptions> overridden)
+            throws IOException, UnsupportedRouteException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, key);
+        out.writeInt(hosts.size());
+        for (HostParams hostParams : hosts.values()) {
+            writeString(out, hostParams.getHost());
+            RouteEntries routes = hostParams.getEntries();
+            out.writeInt(routes.getSize());
+            for (int i = 0; i < routes.getSize(); i++) {
+                String path = routes.getPaths()[i];
+                RouterOptions options = routes.getOptions()[i];
+                String routeKey = hostParams.getHost() + path;
+                if (overridden.containsKey(routeKey)) {
+                    options = overridden.get(routeKey);
+                    if (options == null) {
+                        throw new UnsupportedRouteException("route added by override " + routeKey);
+                    }
+                }
+                writeString(out, path);
+                writeOptions(out, options);
+            }
+        }
+        Map<String, String> injectors = RouterInject.registeredInjectors();
+        out.writeInt(injectors.size());
+        for (Map.Entry<String, String> entry : injectors.entrySet()) {
+            writeString(out, entry.getKey());
+            writeString(out, entry.getValue());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeOptions(DataOutputStream out, RouterOptions options)
+            throws IOException, UnsupportedRouteException {
+        if (options.getRedirectUrl() != null || options.isDisabled()) {
+            throw new UnsupportedRouteException("overridden route");
+        }
+        RouterCallback callback = options.getCallback();
+        if (callback == null) {
+            out.writeByte(KIND_ACTIVITY);
+            writeString(out, options.getOpenClassName());
+            out.writeBoolean(false);
+        } else if (callback instanceof LazyRouterCallback) {
+            LazyRouterCallback lazy = (LazyRouterCallback) callback;
+            out.writeByte(KIND_FACTORY);
+            writeString(out, instantiableName(lazy.getFactory().getClass()));
+            out.writeBoolean(lazy.getSingleton());
+            writeString(out, lazy.getTargetClassName());
+        } else {
+            // 只有生成的调用桩是无状态的，可以按类名重新创建
+            if (!callback.getClass().getName().startsWith("com.kronos.router.init.")) {
+                throw new UnsupportedRouteException("callback " + callback.getClass().getName());
+            }
+            out.writeByte(KIND_CALLBACK);
+            writeString(out, instantiableName(callback.getClass()));
+            out.writeBoolean(true);
+        }
+        out.writeInt(options.getWeight());
+        out.writeInt(options.getFlags());
+        if (!options.getHasDefaultParams()) {
+            out.writeInt(0);
+            return;
+        }
+        Bundle defaults = options.getDefaultParams();
+        out.writeInt(defaults.size());
+        for (String name : defaults.keySet()) {
+            writeString(out, name);
+            Object value = defaults.get(name);
+            if (value instanceof String) {
+                out.writeByte(TYPE_STRING);
+                writeString(out, (String) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(TYPE_INT);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(TYPE_LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(TYPE_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else {
+                throw new UnsupportedRouteException("default param " + name);
+            }
+        }
+    }
+
+    private static RouterOptions readOptions(ByteBuffer buffer, Map<String, LazyRouterCallback> callbacks) {
+        RouterOptions options = new RouterOptions();
+        byte kind = buffer.get();
+        String target = readString(buffer);
+        boolean singleton = buffer.get() != 0;
+        if (kind == KIND_ACTIVITY) {
+            options.setOpenClassName(target);
+        } else if (kind == KIND_FACTORY) {
+            String targetClassName = readString(buffer);
+            LazyRouterCallback callback = callbacks.get(target);
+            if (callback == null) {
+                callback = new LazyRouterCallback(new ReflectiveCallbackFactory(target, true), singleton,
+                        targetClassName);
+                callbacks.put(target, callback);
+            }
+            options.setCallback(callback);
+        } else {
+            LazyRouterCallback callback = callbacks.get(target);
+            if (callback == null) {
+                callback = new LazyRouterCallback(new ReflectiveCallbackFactory(target, false), singleton);
+                callbacks.put(target, callback);
+            }
+            options.setCallback(callback);
+        }
+        options.setWeight(buffer.getInt());
+        options.setFlags(buffer.getInt());
+        int defaultsCount = buffer.getInt();
+        if (defaultsCount > 0) {
+            Bundle defaults = new Bundle();
+            for (int i = 0; i < defaultsCount; i++) {
+                String name = readString(buffer);
+                byte type = buffer.get();
+                if (type == TYPE_STRING) {
+                    defaults.putString(name, readString(buffer));
+                } else if (type == TYPE_INT) {
+                    defaults.putInt(name, buffer.getInt());
+                } else if (type == TYPE_LONG) {
+                    defaults.putLong(name, buffer.getLong());
+                } else {
+                    defaults.putBoolean(name, buffer.get() != 0);
+                }
+            }
+            options.setDefaultParams(defaults);
+        }
+        return options;
+    }
+
+    private static String instantiableName(Class<?> clazz) throws UnsupportedRouteException {
+        if (clazz.isAnonymousClass() || clazz.isLocalClass()
+                || (clazz.getEnclosingClass() != null && !Modifier.isStatic(clazz.getModifiers()))) {
+            throw new UnsupportedRouteException("class " + clazz.getName());
+        }
+        return clazz.getName();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 路由表里有无法按类名恢复的内容，放弃这次快照
+     */
+    static final class UnsupportedRouteException extends Exception {
+        UnsupportedRouteException(String message) {
+            super(message);
+        }
+    }
+}
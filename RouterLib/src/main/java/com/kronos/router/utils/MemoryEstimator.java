@@ -0,0 +1,60 @@
+package com.kronos.router.utils;
+
+import android.os.Bundle;
+
+import java.util.Map;
+
+/**
+ * 按ART的对象布局粗略估算内存占用，只用于Router.memoryStats()，不追求精确
+ */
+public class MemoryEstimator {
+    private static final int HEADER = 8;
+    private static final int REFERENCE = 4;
+    private static final int ARRAY_HEADER = 12;
+
+    public static final long STRIPED_COUNTER = instance(1, 0) + align(ARRAY_HEADER + 32 * 8);
+
+    public static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    public static long instance(int references, int primitiveBytes) {
+        return align(HEADER + references * REFERENCE + primitiveBytes);
+    }
+
+    public static long array(int length) {
+        return align(ARRAY_HEADER + (long) length * REFERENCE);
+    }
+
+    public static long string(String value) {
+        if (value == null) {
+            return 0;
+        }
+        // Android M之后字符数据直接放在String对象里
+        return align(HEADER + 8 + 2L * value.length());
+    }
+
+    public static long bundle(Bundle bundle) {
+        if (bundle == null) {
+            return 0;
+        }
+        // Bundle + ArrayMap，每个entry在两个数组里各占一个位置，值按一个小对象计算
+        long bytes = instance(4, 8) + instance(3, 8) + array(bundle.size()) + array(bundle.size() * 2);
+        for (String key : bundle.keySet()) {
+            Object value = bundle.get(key);
+            bytes += string(key) + (value instanceof String ? string((String) value) : instance(0, 8));
+        }
+        return bytes;
+    }
+
+    public static long map(Map<String, String> map) {
+        if (map == null) {
+            return 0;
+        }
+        long bytes = instance(4, 16) + array(Math.max(16, Integer.highestOneBit(map.size() * 2)));
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            bytes += instance(3, 4) + string(entry.getKey()) + string(entry.getValue());
+        }
+        return bytes;
+    }
+}
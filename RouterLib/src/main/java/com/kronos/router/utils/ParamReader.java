@@ -0,0 +1,125 @@
+package com.kronos.router.utils;
+
+import android.os.Bundle;
+
+/**
+ * 生成的ParamInjector通过这里读取参数，url上的参数都是String，需要兼容解析
+ */
+public class ParamReader {
+
+    public static String getString(Bundle bundle, String key, String fallback) {
+        Object value = bundle.get(key);
+        if (value == null) {
+            return fallback;
+        }
+        return value instanceof String ? (String) value : value.toString();
+    }
+
+    public static int getInt(Bundle bundle, String key, int fallback) {
+        Integer value = getBoxedInt(bundle, key, null);
+        return value != null ? value : fallback;
+    }
+
+    public static long getLong(Bundle bundle, String key, long fallback) {
+        Long value = getBoxedLong(bundle, key, null);
+        return value != null ? value : fallback;
+    }
+
+    public static float getFloat(Bundle bundle, String key, float fallback) {
+        Float value = getBoxedFloat(bundle, key, null);
+        return value != null ? value : fallback;
+    }
+
+    public static double getDouble(Bundle bundle, String key, double fallback) {
+        Double value = getBoxedDouble(bundle, key, null);
+        return value != null ? value : fallback;
+    }
+
+    public static boolean getBoolean(Bundle bundle, String key, boolean fallback) {
+        Boolean value = getBoxedBoolean(bundle, key, null);
+        return value != null ? value : fallback;
+    }
+
+    /**
+     * Integer/Long等包装类型字段用getBoxedXxx，url参数是String，不能直接强转
+     */
+    public static Integer getBoxedInt(Bundle bundle, String key, Integer fallback) {
+        Object value = bundle.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Integer.parseInt((String) value);
+            } catch (NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
+        return fallback;
+    }
+
+    public static Long getBoxedLong(Bundle bundle, String key, Long fallback) {
+        Object value = bundle.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
+        return fallback;
+    }
+
+    public static Float getBoxedFloat(Bundle bundle, String key, Float fallback) {
+        Object value = bundle.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).floatValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Float.parseFloat((String) value);
+            } catch (NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
+        return fallback;
+    }
+
+    public static Double getBoxedDouble(Bundle bundle, String key, Double fallback) {
+        Object value = bundle.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException e) {
+                e.printStackTrace();
+            }
+        }
+        return fallback;
+    }
+
+    public static Boolean getBoxedBoolean(Bundle bundle, String key, Boolean fallback) {
+        Object value = bundle.get(key);
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof String) {
+            return Boolean.parseBoolean((String) value);
+        }
+        return fallback;
+    }
+
+    /**
+     * 没有对应类型方法的字段(Parcelable、Serializable等)，只能是调用方用extras直接传进来的
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(Bundle bundle, String key, T fallback) {
+        Object value = bundle.get(key);
+        return value == null ? fallback : (T) value;
+    }
+}
@@ -0,0 +1,92 @@
+package com.kronos.router.utils;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Build;
+import android.text.TextUtils;
+
+import com.kronos.router.Router;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * 生成的RouterInit通过这里判断当前进程是否需要注册路由
+ */
+public class ProcessUtils {
+    private static volatile String processName;
+
+    public static boolean isCurrentProcess(String[] processes) {
+        Application application = Router.sharedRouter().getApplication();
+        if (application == null || processes.length == 0) {
+            return true;
+        }
+        String current = currentProcessName(application);
+        if (current == null) {
+            return true;
+        }
+        String packageName = application.getPackageName();
+        for (String process : processes) {
+            if (process.isEmpty()) {
+                process = packageName;
+            } else if (process.charAt(0) == ':') {
+                process = packageName + process;
+            }
+            if (TextUtils.equals(process, current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 主进程返回空字符串，子进程返回"_"加上冒号后面的部分，用于区分各进程的缓存文件
+     */
+    public static String processFileSuffix(Context context) {
+        String current = currentProcessName(context);
+        if (current == null || current.equals(context.getPackageName())) {
+            return "";
+        }
+        int index = current.lastIndexOf(':');
+        return "_" + current.substring(index + 1).replaceAll("[^A-Za-z0-9_]", "_");
+    }
+
+    public static String currentProcessName(Context context) {
+        String name = processName;
+        if (name != null) {
+            return name;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            name = Application.getProcessName();
+        } else {
+            name = readProcessName();
+        }
+        processName = name;
+        return name;
+    }
+
+    private static String readProcessName() {
+        FileInputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream("/proc/self/cmdline");
+            byte[] buffer = new byte[256];
+            int length = inputStream.read(buffer);
+            int end = 0;
+            while (end < length && buffer[end] != 0) {
+                end++;
+            }
+            return end > 0 ? new String(buffer, 0, end, "UTF-8").trim() : null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
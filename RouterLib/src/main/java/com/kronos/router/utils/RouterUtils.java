@@ -1,5 +1,6 @@
 package com.kronos.router.utils;
 
+import android.net.Uri;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -13,6 +14,14 @@ import java.util.regex.Pattern;
  */
 public class RouterUtils {
 
+    /**
+     * 路由表不允许null key，没有host的url统一放在""下
+     */
+    public static String hostOf(Uri uri) {
+        String host = uri.getHost();
+        return host == null ? "" : host;
+    }
+
     public static Map<String, String> urlToParamsMap(String[] givenUrlSegments, String[] routerUrlSegments) throws Exception {
         Map<String, String> formatParams = new HashMap<>();
         for (int index = 0; index < routerUrlSegments.length; index++) {
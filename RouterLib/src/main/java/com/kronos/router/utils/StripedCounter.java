@@ -0,0 +1,27 @@
+package com.kronos.router.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按线程分段的计数器，多个线程同时计数时不会竞争同一个cell
+ */
+public class StripedCounter {
+    private static final int STRIPES = 4;
+    // 每个cell间隔8个long，避免落在同一个cache line上
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    public void increment() {
+        int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+        cells.getAndIncrement(stripe * PADDING);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,203 @@
+package com.kronos.router;
+
+import android.app.Application;
+import android.content.Intent;
+import android.net.Uri;
+
+import com.kronos.router.exception.DispatchRejectedException;
+import com.kronos.router.exception.RouteNotFoundException;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * open(Uri)、open(Intent)和RouterDispatchActivity转发
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class DeepLinkTest {
+    private final Application application = RuntimeEnvironment.application;
+    private final Router router = Router.sharedRouter();
+
+    private static final DispatchFilter ALLOW_ALL = new DispatchFilter() {
+        @Override
+        public boolean accept(Uri uri) {
+            return true;
+        }
+    };
+
+    @After
+    public void tearDown() {
+        RouterDispatchActivity.setDispatchListener(null);
+        RouterDispatchActivity.setDispatchFilter(null);
+        RouterDispatchActivity.setForwardExtras(false);
+    }
+
+    @Test
+    public void openUriPassesPathAndQuery() {
+        router.attachApplication(application);
+        Router.map("https://deeplink.test/item/:id", "com.kronos.sample.ItemActivity");
+
+        router.open(Uri.parse("https://deeplink.test/item/42?from=share"), application);
+
+        Intent started = Shadows.shadowOf(application).getNextStartedActivity();
+        assertEquals("com.kronos.sample.ItemActivity", started.getComponent().getClassName());
+        assertEquals("42", started.getStringExtra("id"));
+        assertEquals("share", started.getStringExtra("from"));
+    }
+
+    @Test
+    public void openIntentForwardsExtras() {
+        router.attachApplication(application);
+        Router.map("https://deeplink.test/order/:id", "com.kronos.sample.OrderActivity");
+        Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse("https://deeplink.test/order/7?tab=detail"));
+        intent.putExtra("campaign", "spring");
+
+        router.open(intent, application);
+
+        Intent started = Shadows.shadowOf(application).getNextStartedActivity();
+        assertEquals("com.kronos.sample.OrderActivity", started.getComponent().getClassName());
+        assertEquals("7", started.getStringExtra("id"));
+        assertEquals("detail", started.getStringExtra("tab"));
+        assertEquals("spring", started.getStringExtra("campaign"));
+    }
+
+    @Test(expected = RouteNotFoundException.class)
+    public void openIntentWithoutDataFails() {
+        router.open(new Intent(Intent.ACTION_VIEW), application);
+    }
+
+    @Test
+    public void dispatchActivityOpensTargetAndFinishes() {
+        Router.map("https://dispatch.test/page/:id", "com.kronos.sample.PageActivity");
+        final AtomicLong cost = new AtomicLong(-1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        RouterDispatchActivity.setDispatchListener(new DispatchListener() {
+            @Override
+            public void onDispatched(Uri uri, long costNanos, Throwable e) {
+                cost.set(costNanos);
+                error.set(e);
+            }
+        });
+        RouterDispatchActivity.setDispatchFilter(ALLOW_ALL);
+
+        RouterDispatchActivity activity = dispatch("https://dispatch.test/page/3").get();
+
+        Intent started = Shadows.shadowOf(activity).getNextStartedActivity();
+        assertEquals("com.kronos.sample.PageActivity", started.getComponent().getClassName());
+        assertEquals("3", started.getStringExtra("id"));
+        assertTrue(activity.isFinishing());
+        assertTrue(cost.get() >= 0);
+        assertNull(error.get());
+    }
+
+    @Test
+    public void dispatchActivityReportsMissingRoute() {
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        RouterDispatchActivity.setDispatchListener(new DispatchListener() {
+            @Override
+            public void onDispatched(Uri uri, long costNanos, Throwable e) {
+                error.set(e);
+            }
+        });
+        RouterDispatchActivity.setDispatchFilter(ALLOW_ALL);
+
+        RouterDispatchActivity activity = dispatch("https://missing.test/page").get();
+
+        assertTrue(activity.isFinishing());
+        assertTrue(String.valueOf(error.get()), error.get() instanceof RouteNotFoundException);
+    }
+
+    @Test
+    public void dispatchFilterRejectsBeforeOpen() {
+        Router.map("https://dispatch.test/internal", "com.kronos.sample.InternalActivity");
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        RouterDispatchActivity.setDispatchListener(new DispatchListener() {
+            @Override
+            public void onDispatched(Uri uri, long costNanos, Throwable e) {
+                error.set(e);
+            }
+        });
+        RouterDispatchActivity.setDispatchFilter(new DispatchFilter() {
+            @Override
+            public boolean accept(Uri uri) {
+                return uri.getPath() != null && uri.getPath().startsWith("/share/");
+            }
+        });
+
+        RouterDispatchActivity activity = dispatch("https://dispatch.test/internal").get();
+
+        assertNull(Shadows.shadowOf(activity).getNextStartedActivity());
+        assertTrue(activity.isFinishing());
+        assertTrue(String.valueOf(error.get()), error.get() instanceof DispatchRejectedException);
+    }
+
+    @Test
+    public void dispatchRejectsEverythingWithoutFilter() {
+        Router.map("https://dispatch.test/open", "com.kronos.sample.OpenActivity");
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        RouterDispatchActivity.setDispatchListener(new DispatchListener() {
+            @Override
+            public void onDispatched(Uri uri, long costNanos, Throwable e) {
+                error.set(e);
+            }
+        });
+
+        RouterDispatchActivity activity = dispatch("https://dispatch.test/open").get();
+
+        assertNull(Shadows.shadowOf(activity).getNextStartedActivity());
+        assertTrue(String.valueOf(error.get()), error.get() instanceof DispatchRejectedException);
+    }
+
+    @Test
+    public void dispatchDropsCallerExtrasByDefault() {
+        Router.map("https://dispatch.test/extras/:id", "com.kronos.sample.ExtrasActivity");
+        RouterDispatchActivity.setDispatchFilter(ALLOW_ALL);
+        Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse("https://dispatch.test/extras/1?from=link"));
+        intent.putExtra("redirect", new Intent("com.kronos.sample.INTERNAL"));
+
+        RouterDispatchActivity activity = dispatch(intent).get();
+
+        Intent started = Shadows.shadowOf(activity).getNextStartedActivity();
+        assertEquals("1", started.getStringExtra("id"));
+        assertEquals("link", started.getStringExtra("from"));
+        assertNull(started.getParcelableExtra("redirect"));
+    }
+
+    @Test
+    public void dispatchForwardsExtrasWhenEnabled() {
+        Router.map("https://dispatch.test/forward/:id", "com.kronos.sample.ForwardActivity");
+        RouterDispatchActivity.setDispatchFilter(ALLOW_ALL);
+        RouterDispatchActivity.setForwardExtras(true);
+        Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse("https://dispatch.test/forward/2"));
+        intent.putExtra("campaign", "spring");
+
+        RouterDispatchActivity activity = dispatch(intent).get();
+
+        Intent started = Shadows.shadowOf(activity).getNextStartedActivity();
+        assertEquals("2", started.getStringExtra("id"));
+        assertEquals("spring", started.getStringExtra("campaign"));
+    }
+
+    private static ActivityController<RouterDispatchActivity> dispatch(String url) {
+        return dispatch(new Intent(Intent.ACTION_VIEW, Uri.parse(url)));
+    }
+
+    private static ActivityController<RouterDispatchActivity> dispatch(Intent intent) {
+        return Robolectric.buildActivity(RouterDispatchActivity.class, intent).create();
+    }
+}
@@ -0,0 +1,118 @@
+package com.kronos.router;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.Intent;
+import android.os.Bundle;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowApplication;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class OpenStackTest {
+    private final Router router = Router.sharedRouter();
+
+    @Test
+    public void opensInOrderWithExtrasOnlyOnTop() {
+        Router.map("https://stack.test/home", "com.kronos.sample.HomeActivity");
+        Router.map("https://stack.test/list/:category{string}", "com.kronos.sample.ListActivity");
+        Router.map("https://stack.test/detail/:id", "com.kronos.sample.DetailActivity");
+        CapturingContext context = new CapturingContext(RuntimeEnvironment.application);
+        Bundle extras = new Bundle();
+        extras.putString("from", "push");
+
+        router.openStack(Arrays.asList("https://stack.test/home", "https://stack.test/list/shoes",
+                "https://stack.test/detail/7?ref=push"), extras, context);
+
+        Intent[] intents = context.started;
+        assertEquals(3, intents.length);
+        assertEquals("com.kronos.sample.HomeActivity", intents[0].getComponent().getClassName());
+        assertEquals("com.kronos.sample.ListActivity", intents[1].getComponent().getClassName());
+        assertEquals("com.kronos.sample.DetailActivity", intents[2].getComponent().getClassName());
+        assertEquals("shoes", intents[1].getStringExtra("category"));
+        assertEquals("7", intents[2].getStringExtra("id"));
+        assertEquals("push", intents[2].getStringExtra("ref"));
+        assertEquals("push", intents[2].getStringExtra("from"));
+        assertNull(intents[0].getStringExtra("from"));
+        assertNull(intents[1].getStringExtra("from"));
+        // 不是Activity的context只有栈底需要NEW_TASK
+        assertTrue(hasNewTask(intents[0]));
+        assertFalse(hasNewTask(intents[1]));
+        assertFalse(hasNewTask(intents[2]));
+    }
+
+    @Test
+    public void applicationContextOnlyStartsTaskOnce() {
+        Application application = RuntimeEnvironment.application;
+        router.attachApplication(application);
+        Router.map("https://stack.test/root", "com.kronos.sample.RootActivity");
+        Router.map("https://stack.test/top", "com.kronos.sample.TopActivity");
+
+        router.openStack(Arrays.asList("https://stack.test/root", "https://stack.test/top"), null, application);
+
+        ShadowApplication shadow = Shadows.shadowOf(application);
+        Map<String, Intent> started = new HashMap<>();
+        Intent intent;
+        while ((intent = shadow.getNextStartedActivity()) != null) {
+            started.put(intent.getComponent().getClassName(), intent);
+        }
+        assertEquals(2, started.size());
+        assertTrue(hasNewTask(started.get("com.kronos.sample.RootActivity")));
+        assertFalse(hasNewTask(started.get("com.kronos.sample.TopActivity")));
+    }
+
+    @Test
+    public void callbackRouteRejectsWholeStack() {
+        final AtomicBoolean called = new AtomicBoolean();
+        Router.map("https://stack.test/first", "com.kronos.sample.FirstActivity");
+        Router.map("https://stack.test/callback", new RouterCallback() {
+            @Override
+            public void run(RouterContext context) {
+                called.set(true);
+            }
+        });
+        CapturingContext context = new CapturingContext(RuntimeEnvironment.application);
+        try {
+            router.openStack(Arrays.asList("https://stack.test/first", "https://stack.test/callback"), null, context);
+            fail("callback route opened in a stack");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertNull(context.started);
+        assertFalse(called.get());
+    }
+
+    private static boolean hasNewTask(Intent intent) {
+        return (intent.getFlags() & Intent.FLAG_ACTIVITY_NEW_TASK) != 0;
+    }
+
+    private static final class CapturingContext extends ContextWrapper {
+        Intent[] started;
+
+        CapturingContext(Context base) {
+            super(base);
+        }
+
+        @Override
+        public void startActivities(Intent[] intents) {
+            started = intents;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.kronos.router;
+
+import android.app.Application;
+import android.content.Intent;
+import android.net.Uri;
+
+import com.kronos.router.exception.RouteNotFoundException;
+import com.kronos.router.model.RouteOverride;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * RouteRef拼url和open(RouteRef)的快速路径，结果要和按字符串打开一致
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RouteRefTest {
+    private static final RouteRef ITEM = new RouteRef("https://ref.test/item/:id/:tab{string}", "ref.test",
+            "/item/:id/:tab{string}", new String[]{"https://ref.test/item/", "/", ""}, new String[]{"id", "tab"});
+
+    private final Application application = RuntimeEnvironment.application;
+    private final Router router = Router.sharedRouter();
+
+    @After
+    public void tearDown() {
+        router.applyRouteOverrides(Collections.<RouteOverride>emptyList());
+    }
+
+    @Test
+    public void appendSegmentEncodesLikeUri() {
+        String[] values = {"plain-_.~", "a b/c?d=e&f", "中文", "ü", "emoji 😀", "+%#"};
+        for (String value : values) {
+            assertEquals(value, Uri.encode(value), RouteRef.appendSegment(new StringBuilder(), value).toString());
+        }
+        assertEquals("%F0%9F%98%80", RouteRef.appendSegment(new StringBuilder(), "😀").toString());
+    }
+
+    @Test
+    public void buildFillsPathAndAppendsQuery() {
+        Map<String, Object> args = new LinkedHashMap<>();
+        args.put("id", 5);
+        args.put("tab", "a b");
+        args.put("from", "push");
+        args.put("skip", null);
+        assertEquals("https://ref.test/item/5/a%20b?from=push", ITEM.build(args));
+
+        RouteRef withQuery = new RouteRef("https://ref.test/list?sort=new", "ref.test", "/list",
+                new String[]{"https://ref.test/list?sort=new"}, new String[0]);
+        assertEquals("https://ref.test/list?sort=new&page=2",
+                withQuery.build(Collections.singletonMap("page", 2)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void buildRejectsMissingPathParam() {
+        ITEM.build(Collections.singletonMap("id", 5));
+    }
+
+    @Test
+    public void openRefMatchesOpenString() {
+        router.attachApplication(application);
+        Router.map(ITEM.getTemplate(), "com.kronos.sample.ItemActivity");
+        Map<String, Object> args = new LinkedHashMap<>();
+        args.put("id", 7);
+        args.put("tab", "info");
+        args.put("from", "ref");
+
+        Intent byRef = openRef(args);
+        Intent byString = openString(ITEM.build(args));
+        assertEquals("com.kronos.sample.ItemActivity", byRef.getComponent().getClassName());
+        assertEquals(byString.getComponent(), byRef.getComponent());
+        for (String key : new String[]{"id", "tab", "from"}) {
+            assertEquals(key, byString.getStringExtra(key), byRef.getStringExtra(key));
+        }
+        assertEquals("ref", byRef.getStringExtra("from"));
+    }
+
+    @Test
+    public void openRefPrefersScope() {
+        router.attachApplication(application);
+        Router.map(ITEM.getTemplate(), "com.kronos.sample.ItemActivity");
+        router.attachScope(new RouterScope("ref").map(ITEM.getTemplate(), "com.kronos.sample.ScopedItemActivity"));
+        try {
+            Map<String, Object> args = new LinkedHashMap<>();
+            args.put("id", 1);
+            args.put("tab", "info");
+            assertEquals("com.kronos.sample.ScopedItemActivity", openRef(args).getComponent().getClassName());
+            assertEquals("com.kronos.sample.ScopedItemActivity",
+                    openString(ITEM.build(args)).getComponent().getClassName());
+        } finally {
+            router.detachScope("ref");
+        }
+    }
+
+    @Test
+    public void openRefWithoutRouteFailsLikeString() {
+        RouteRef missing = new RouteRef("https://ref-missing.test/page", "ref-missing.test", "/page",
+                new String[]{"https://ref-missing.test/page"}, new String[0]);
+        try {
+            router.open(missing, null, application);
+            fail("missing ref opened");
+        } catch (RouteNotFoundException expected) {
+        }
+        try {
+            router.open("https://ref-missing.test/page", application);
+            fail("missing url opened");
+        } catch (RouteNotFoundException expected) {
+        }
+    }
+
+    @Test
+    public void openRefFollowsRedirectAndDisable() {
+        router.attachApplication(application);
+        Router.map(ITEM.getTemplate(), "com.kronos.sample.ItemActivity");
+        Router.map("https://ref.test/new/:id", "com.kronos.sample.NewItemActivity");
+        Map<String, Object> args = new LinkedHashMap<>();
+        args.put("id", 3);
+        args.put("tab", "info");
+
+        router.applyRouteOverrides(Collections.singletonList(
+                new RouteOverride(ITEM.getTemplate(), null, "https://ref.test/new/3", false)));
+        assertEquals("com.kronos.sample.NewItemActivity", openRef(args).getComponent().getClassName());
+        assertEquals("com.kronos.sample.NewItemActivity",
+                openString(ITEM.build(args)).getComponent().getClassName());
+
+        router.applyRouteOverrides(Collections.singletonList(new RouteOverride(ITEM.getTemplate(), null, null, true)));
+        try {
+            router.open(ITEM, args, application);
+            fail("disabled ref opened");
+        } catch (RouteNotFoundException expected) {
+        }
+        try {
+            router.open(ITEM.build(args), application);
+            fail("disabled url opened");
+        } catch (RouteNotFoundException expected) {
+        }
+    }
+
+    private Intent openRef(Map<String, ?> args) {
+        router.open(ITEM, args, application);
+        return Shadows.shadowOf(application).getNextStartedActivity();
+    }
+
+    private Intent openString(String url) {
+        router.open(url, application);
+        return Shadows.shadowOf(application).getNextStartedActivity();
+    }
+}
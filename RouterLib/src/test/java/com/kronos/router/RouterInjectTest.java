@@ -0,0 +1,181 @@
+package com.kronos.router;
+
+import android.content.Intent;
+
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用真正的RouterProcessor生成injector，从url参数注入各种类型的字段
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RouterInjectTest {
+    private static final String TARGET = "inject.ParamFragment";
+    private static final String SOURCE = "package inject;\n"
+            + "import com.kronos.router.RouterParam;\n"
+            + "public class ParamFragment extends androidx.fragment.app.Fragment {\n"
+            + "    @RouterParam public Integer id;\n"
+            + "    @RouterParam(\"count\") public Long total;\n"
+            + "    @RouterParam public Boolean flag;\n"
+            + "    @RouterParam public Double ratio;\n"
+            + "    @RouterParam public Integer missing = 3;\n"
+            + "    @RouterParam public Integer broken;\n"
+            + "    @RouterParam public int page;\n"
+            + "    @RouterParam public String name;\n"
+            + "}\n";
+    private static final String MODULE = "package inject;\n"
+            + "@com.kronos.router.BindModule(\"inject\")\n"
+            + "public class InjectModule {\n"
+            + "}\n";
+
+    private static File classes;
+    private static File sources;
+    private static File proguardDir;
+
+    /**
+     * Robolectric每个测试方法的沙箱不同，在测试里生成而不是@BeforeClass
+     */
+    private static synchronized ClassLoader generated() throws Exception {
+        if (classes == null) {
+            classes = generate(Files.createTempDirectory("router-inject").toFile());
+        }
+        return new URLClassLoader(new URL[]{classes.toURI().toURL()}, RouterInjectTest.class.getClassLoader());
+    }
+
+    private static File generate(File workDir) throws Exception {
+        File sourceDir = new File(workDir, "src/inject");
+        sourceDir.mkdirs();
+        File generated = new File(workDir, "generated");
+        generated.mkdirs();
+        sources = generated;
+        File output = new File(workDir, "classes");
+        output.mkdirs();
+        proguardDir = new File(workDir, "proguard");
+        File source = write(new File(sourceDir, "ParamFragment.java"), SOURCE);
+        File module = write(new File(sourceDir, "InjectModule.java"), MODULE);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            Boolean success = compiler.getTask(null, fileManager, diagnostics, Arrays.asList(
+                    "-classpath", System.getProperty("java.class.path"),
+                    "-processor", "com.kronos.router.RouterProcessor",
+                    "-Arouter.proguardDir=" + proguardDir.getPath(),
+                    "-s", generated.getPath(),
+                    "-d", output.getPath()), null,
+                    fileManager.getJavaFileObjectsFromFiles(Arrays.asList(source, module))).call();
+            assertTrue(diagnostics.getDiagnostics().toString(), Boolean.TRUE.equals(success));
+        }
+        return output;
+    }
+
+    private static File write(File file, String content) throws Exception {
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    @Test
+    public void injectsBoxedFieldsFromUrl() throws Exception {
+        ClassLoader loader = generated();
+        Class<?> target = loader.loadClass(TARGET);
+        @SuppressWarnings("unchecked")
+        ParamInjector<Object> injector = (ParamInjector<Object>) loader.loadClass(TARGET + "_RouterInjector")
+                .newInstance();
+        Router.map("https://inject.test/item/:id", "com.kronos.sample.ItemActivity");
+        Intent intent = Router.sharedRouter().intentFor(RuntimeEnvironment.application,
+                "https://inject.test/item/5?count=12&flag=true&ratio=0.5&broken=x&page=2&name=a%20b");
+
+        Object fragment = target.newInstance();
+        injector.inject(fragment, intent.getExtras());
+        assertEquals(5, field(fragment, "id"));
+        assertEquals(12L, field(fragment, "total"));
+        assertEquals(Boolean.TRUE, field(fragment, "flag"));
+        assertEquals(0.5, field(fragment, "ratio"));
+        assertEquals(3, field(fragment, "missing"));
+        assertNull(field(fragment, "broken"));
+        assertEquals(2, field(fragment, "page"));
+        assertEquals("a b", field(fragment, "name"));
+    }
+
+    @Test
+    public void findsTargetFragmentThroughClassIndex() throws Exception {
+        ClassLoader loader = generated();
+        @SuppressWarnings("unchecked")
+        Class<Fragment> target = (Class<Fragment>) loader.loadClass(TARGET);
+        @SuppressWarnings("unchecked")
+        ParamInjector<Fragment> injector = (ParamInjector<Fragment>) loader.loadClass(TARGET + "_RouterInjector")
+                .newInstance();
+        RouterInject.register(target, injector);
+
+        FragmentActivity activity = Robolectric.buildActivity(FragmentActivity.class).setup().get();
+        Fragment other = new Fragment();
+        Fragment fragment = target.newInstance();
+        activity.getSupportFragmentManager().beginTransaction()
+                .add(other, "other")
+                .add(fragment, "untagged")
+                .commitNow();
+        Intent intent = new Intent();
+        intent.putExtra("target", TARGET);
+        intent.putExtra("id", "7");
+        RouterInject.inject(activity, intent);
+        assertEquals(7, field(fragment, "id"));
+    }
+
+    @Test
+    public void initRegistersInjectorByName() throws Exception {
+        generated();
+        File file = new File(sources, "com/kronos/router/init/RouterInit_inject.java");
+        String init = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        // 注册时不能加载目标类，也不能创建injector
+        assertTrue(init, init.contains("RouterInject.register(\"inject.ParamFragment\", \"inject.ParamFragment_RouterInjector\")"));
+        assertFalse(init, init.contains("ParamFragment.class"));
+        assertFalse(init, init.contains("new ParamFragment_RouterInjector()"));
+    }
+
+    @Test
+    public void writesKeepRulesToProguardDir() throws Exception {
+        generated();
+        File file = new File(proguardDir, "router-inject.pro");
+        assertTrue(file.getPath(), file.isFile());
+        String rules = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(rules, rules.contains("-keep class inject.ParamFragment_RouterInjector { <init>(); }"));
+        // 和META-INF下的内容一致，目录里也不能留下临时文件
+        File meta = new File(classes, "META-INF/proguard/router-inject.pro");
+        assertEquals(new String(Files.readAllBytes(meta.toPath()), StandardCharsets.UTF_8), rules);
+        assertEquals(1, proguardDir.list().length);
+    }
+
+    private static Object field(Object target, String name) throws Exception {
+        Field field = target.getClass().getField(name);
+        return field.get(target);
+    }
+}
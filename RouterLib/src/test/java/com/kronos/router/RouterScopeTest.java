@@ -0,0 +1,99 @@
+package com.kronos.router;
+
+import android.content.Context;
+import android.content.Intent;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * scope覆盖全局路由、detach释放、同名替换和unmap
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RouterScopeTest {
+    private final Context context = RuntimeEnvironment.application;
+    private final Router router = Router.sharedRouter();
+
+    @Test
+    public void scopeOverridesAndFallsBackToGlobal() {
+        Router.map("https://scope.test/page/:id", "com.kronos.sample.RootPage");
+        Router.map("https://scope.test/other", "com.kronos.sample.OtherPage");
+        router.attachScope(new RouterScope("override")
+                .map("https://scope.test/page/:id", "com.kronos.sample.ScopedPage"));
+        try {
+            assertTarget("com.kronos.sample.ScopedPage", "https://scope.test/page/1");
+            // scope里没有的路由回到全局路由表
+            assertTarget("com.kronos.sample.OtherPage", "https://scope.test/other");
+        } finally {
+            router.detachScope("override");
+        }
+        assertTarget("com.kronos.sample.RootPage", "https://scope.test/page/1");
+    }
+
+    @Test
+    public void detachReleasesRoutesAndCache() {
+        Router.map("https://detach.test/page/:id", "com.kronos.sample.RootPage");
+        RouterScope scope = new RouterScope("detach")
+                .map("https://detach.test/page/:id", "com.kronos.sample.ScopedPage");
+        router.attachScope(scope);
+        assertTarget("com.kronos.sample.ScopedPage", "https://detach.test/page/1");
+        assertEquals(1, scope.getRealCall().cacheStats().getSize());
+
+        assertSame(scope, router.detachScope("detach"));
+        assertFalse(scope.ownsHost("detach.test"));
+        assertEquals(0, scope.estimateRouteBytes());
+        assertEquals(0, scope.getRealCall().cacheStats().getSize());
+        assertNull(router.getScope("detach"));
+        assertNull(router.detachScope("detach"));
+        assertTarget("com.kronos.sample.RootPage", "https://detach.test/page/1");
+    }
+
+    @Test
+    public void attachingSameNameReplacesAndClearsOld() {
+        RouterScope first = new RouterScope("replace")
+                .map("https://replace.test/page", "com.kronos.sample.FirstPage");
+        RouterScope second = new RouterScope("replace")
+                .map("https://replace.test/page", "com.kronos.sample.SecondPage");
+        router.attachScope(first);
+        router.attachScope(second);
+        try {
+            assertSame(second, router.getScope("replace"));
+            assertFalse(first.ownsHost("replace.test"));
+            assertTarget("com.kronos.sample.SecondPage", "https://replace.test/page");
+        } finally {
+            router.detachScope("replace");
+        }
+    }
+
+    @Test
+    public void unmapInvalidatesScopeCache() {
+        Router.map("https://unmap.test/page", "com.kronos.sample.RootPage");
+        RouterScope scope = new RouterScope("unmap")
+                .map("https://unmap.test/page", "com.kronos.sample.ScopedPage");
+        router.attachScope(scope);
+        try {
+            assertTarget("com.kronos.sample.ScopedPage", "https://unmap.test/page");
+            assertTrue(scope.unmap("https://unmap.test/page"));
+            assertFalse(scope.unmap("https://unmap.test/page"));
+            assertFalse(scope.ownsHost("unmap.test"));
+            assertTarget("com.kronos.sample.RootPage", "https://unmap.test/page");
+        } finally {
+            router.detachScope("unmap");
+        }
+    }
+
+    private void assertTarget(String expected, String url) {
+        Intent intent = router.intentFor(context, url);
+        assertEquals(url, expected, intent.getComponent().getClassName());
+    }
+}
@@ -0,0 +1,228 @@
+package com.kronos.router;
+
+import android.content.Context;
+import android.content.Intent;
+
+import com.kronos.router.model.HostParams;
+import com.kronos.router.model.RouteOverride;
+import com.kronos.router.module.ModuleLoader;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多线程同时map、open、覆盖路由和淘汰缓存，检查结果有没有丢失、过期或者参数被串改
+ * <p>
+ * Router是单例，每个用例使用自己的host互不影响
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RouterStressTest {
+    private static final int THREADS = 8;
+
+    private final Context context = RuntimeEnvironment.application;
+    private final Router router = Router.sharedRouter();
+
+    @Test
+    public void concurrentMapAndOpen_noLostRoutes() throws Exception {
+        final int writers = THREADS / 2;
+        final int perWriter = Math.max(50, StressRunner.ITERATIONS / 10);
+        final AtomicIntegerArray published = new AtomicIntegerArray(writers);
+        StressRunner.run(THREADS, new StressRunner.Actor() {
+            @Override
+            public void act(int thread) {
+                if (thread < writers) {
+                    for (int i = 0; i < perWriter; i++) {
+                        Router.map(mapUrl(thread, i), mapTarget(thread, i));
+                        published.set(thread, i + 1);
+                    }
+                    return;
+                }
+                for (int n = 0; n < StressRunner.ITERATIONS; n++) {
+                    int writer = n % writers;
+                    int count = published.get(writer);
+                    if (count == 0) {
+                        continue;
+                    }
+                    // 已经map完成的路由必须能立刻打开，并且指向正确的页面
+                    int i = (n * 31) % count;
+                    assertTarget(mapTarget(writer, i), mapUrl(writer, i));
+                }
+            }
+        });
+        for (int writer = 0; writer < writers; writer++) {
+            for (int i = 0; i < perWriter; i++) {
+                assertTarget(mapTarget(writer, i), mapUrl(writer, i));
+            }
+        }
+    }
+
+    @Test
+    public void concurrentOpen_paramsNotShared() throws Exception {
+        Router.map("https://params.stress/item/:id", "com.stress.Item");
+        Router.map("https://params.stress/cb/:id", new RouterCallback() {
+            @Override
+            public void run(RouterContext context) {
+                Map<String, String> params = context.getParams();
+                String id = params.get("id");
+                if (!("https://params.stress/cb/" + id + "?token=" + id).equals(params.get("targetUrl"))
+                        || !id.equals(params.get("token"))) {
+                    throw new AssertionError("corrupted callback params " + params);
+                }
+                // 回调改了参数也不能影响缓存里的路由
+                params.clear();
+            }
+        });
+        StressRunner.run(THREADS, new StressRunner.Actor() {
+            @Override
+            public void act(int thread) {
+                for (int n = 0; n < StressRunner.ITERATIONS; n++) {
+                    int id = (n + thread) % 64;
+                    String url = "https://params.stress/item/" + id + "?token=" + id;
+                    Intent intent = router.intentFor(context, url);
+                    assertEquals("com.stress.Item", intent.getComponent().getClassName());
+                    assertEquals(String.valueOf(id), intent.getStringExtra("id"));
+                    assertEquals(String.valueOf(id), intent.getStringExtra("token"));
+                    assertEquals(url, intent.getStringExtra("targetUrl"));
+                    router.open("https://params.stress/cb/" + id + "?token=" + id, context);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void overrideWhileOpening_neverStale() throws Exception {
+        final String template = "https://override.stress/page/:name{string}";
+        Router.map(template, overrideTarget(0));
+        final int steps = Math.max(50, StressRunner.ITERATIONS / 10);
+        // 写线程每完成一次覆盖就加一，第step次覆盖之后的目标是overrideTarget(step)
+        final AtomicLong committed = new AtomicLong();
+        StressRunner.run(THREADS, new StressRunner.Actor() {
+            @Override
+            public void act(int thread) {
+                if (thread == 0) {
+                    for (int step = 1; step <= steps; step++) {
+                        router.applyRouteOverrides(Collections.singletonList(
+                                new RouteOverride(template, overrideTarget(step), null, false)));
+                        committed.set(step);
+                    }
+                    return;
+                }
+                for (int n = 0; n < StressRunner.ITERATIONS; n++) {
+                    String url = "https://override.stress/page/p" + (n % 16);
+                    long before = committed.get();
+                    String target = router.intentFor(context, url).getComponent().getClassName();
+                    long after = committed.get();
+                    // 可线性化：结果只能是读之前已经提交的，或者读的过程中正在提交的那次覆盖
+                    long step = Long.parseLong(target.substring(target.lastIndexOf('T') + 1));
+                    assertTrue("stale route " + target + " after step " + before, step >= before);
+                    assertTrue("route from the future " + target + " before step " + after, step <= after + 1);
+                }
+            }
+        });
+        for (int n = 0; n < 16; n++) {
+            assertTarget(overrideTarget(steps), "https://override.stress/page/p" + n);
+        }
+    }
+
+    @Test
+    public void mapAfterCached_notStale() throws Exception {
+        Router.map("https://late.stress/:name{string}", "com.stress.Generic");
+        final int routes = 64;
+        final AtomicIntegerArray mapped = new AtomicIntegerArray(routes);
+        StressRunner.run(THREADS, new StressRunner.Actor() {
+            @Override
+            public void act(int thread) {
+                if (thread == 0) {
+                    for (int i = 0; i < routes; i++) {
+                        Router.map("https://late.stress/special" + i, "com.stress.Special" + i);
+                        mapped.set(i, 1);
+                    }
+                    return;
+                }
+                for (int n = 0; n < StressRunner.ITERATIONS; n++) {
+                    int i = (n * 7 + thread) % routes;
+                    boolean exact = mapped.get(i) == 1;
+                    String target = router.intentFor(context, "https://late.stress/special" + i)
+                            .getComponent().getClassName();
+                    // 精确路由map完成之后，之前缓存的通配结果不能再返回
+                    if (exact) {
+                        assertEquals("com.stress.Special" + i, target);
+                    } else {
+                        assertTrue(target, target.equals("com.stress.Generic")
+                                || target.equals("com.stress.Special" + i));
+                    }
+                }
+            }
+        });
+    }
+
+    @Test
+    public void parallelModules_gateBlocksUntilMerged() throws Exception {
+        final int modules = 32;
+        final ModuleLoader loader = new ModuleLoader();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        loader.setExecutor(executor);
+        final Map<String, HostParams> live = new ConcurrentHashMap<>();
+        try {
+            for (int i = 0; i < modules; i++) {
+                final String host = "module" + i + ".stress";
+                loader.load("module" + i, new String[]{host}, new Runnable() {
+                    @Override
+                    public void run() {
+                        Thread.yield();
+                        ModuleLoader.stagingTable().put(host, new HostParams(host));
+                    }
+                }, new ModuleLoader.TableMerger() {
+                    @Override
+                    public void merge(Map<String, HostParams> staged) {
+                        live.putAll(staged);
+                    }
+                });
+            }
+            StressRunner.run(THREADS, new StressRunner.Actor() {
+                @Override
+                public void act(int thread) {
+                    for (int i = thread; i < modules; i += THREADS) {
+                        String host = "module" + i + ".stress";
+                        loader.awaitUrl("https://" + host + "/index");
+                        assertTrue("module for " + host + " not merged after await", live.containsKey(host));
+                    }
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void assertTarget(String expected, String url) {
+        Intent intent = router.intentFor(context, url);
+        assertEquals(url, expected, intent.getComponent().getClassName());
+    }
+
+    private static String mapUrl(int writer, int i) {
+        return "https://map.stress/w" + writer + "/r" + i;
+    }
+
+    private static String mapTarget(int writer, int i) {
+        return "com.stress.W" + writer + "R" + i;
+    }
+
+    private static String overrideTarget(int step) {
+        return "com.stress.OverrideT" + step;
+    }
+}
@@ -0,0 +1,53 @@
+package com.kronos.router;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 所有线程在同一时刻开始执行，收集每个线程里的异常和断言失败
+ */
+final class StressRunner {
+    static final int ITERATIONS = Integer.getInteger("router.stress.iterations", 2000);
+    private static final long TIMEOUT_SECONDS = 120;
+
+    interface Actor {
+        void act(int thread) throws Exception;
+    }
+
+    private StressRunner() {
+    }
+
+    static void run(int threads, final Actor actor) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < threads; i++) {
+            final int thread = i;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        actor.act(thread);
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "router-stress-" + i).start();
+        }
+        start.countDown();
+        if (!done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new AssertionError("stress threads did not finish in " + TIMEOUT_SECONDS + "s");
+        }
+        if (!failures.isEmpty()) {
+            AssertionError error = new AssertionError(failures.size() + " thread(s) failed, first: "
+                    + failures.peek());
+            error.initCause(failures.peek());
+            throw error;
+        }
+    }
+}
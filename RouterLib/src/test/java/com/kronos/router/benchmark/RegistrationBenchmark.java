@@ -0,0 +1,148 @@
+package com.kronos.router.benchmark;
+
+import android.content.Context;
+import android.content.Intent;
+
+import com.kronos.router.Router;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 模块数增长时RouterRegistry.register()的耗时、分配和常驻内存
+ * <p>
+ * 默认跳过，用-Drouter.benchmark=true打开：
+ * <pre>
+ * ./gradlew :RouterLib:testDebugUnitTest --tests '*RegistrationBenchmark' -Drouter.benchmark=true \
+ *     -Drouter.benchmark.modules=10,50,200 -Drouter.benchmark.routes=50
+ * </pre>
+ * router.benchmark.output指定文件时结果额外写成csv，方便和之前的结果对比
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RegistrationBenchmark {
+    private static final String MODULES = System.getProperty("router.benchmark.modules", "10,50,100");
+    private static final int ROUTES = Integer.getInteger("router.benchmark.routes", 50);
+    private static final int WARMUP_MODULES = 5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Context context = RuntimeEnvironment.application;
+
+    @Test
+    public void registration() throws Exception {
+        Assume.assumeTrue("set -Drouter.benchmark=true to run", Boolean.getBoolean("router.benchmark"));
+        // 预热一轮，Router自身的类加载和JIT不算进结果
+        measure("warm", WARMUP_MODULES);
+        List<Result> results = new ArrayList<>();
+        int round = 0;
+        for (String value : MODULES.split(",")) {
+            results.add(measure("r" + round++ + "m", Integer.parseInt(value.trim())));
+        }
+        report(results);
+    }
+
+    private Result measure(String prefix, int modules) throws Exception {
+        SyntheticModules synthetic = new SyntheticModules(prefix, modules, ROUTES);
+        ClassLoader loader = synthetic.build(folder.newFolder(prefix), getClass().getClassLoader());
+        Method register = loader.loadClass(SyntheticModules.REGISTRY).getMethod("register");
+
+        long heapBefore = usedHeapAfterGc();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        // 和RouterRegistry.register()一样，类加载和<clinit>也算在注册耗时里
+        register.invoke(null);
+        long nanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        long retained = usedHeapAfterGc() - heapBefore;
+
+        // 每个模块抽一个路由确认真的注册上了
+        for (int i = 0; i < modules; i++) {
+            Intent intent = Router.sharedRouter().intentFor(context, "https://" + prefix + i + ".bench.com/page0");
+            assertEquals("bench." + prefix + i + ".Module$Page0", intent.getComponent().getClassName());
+        }
+        return new Result(modules, synthetic.routeCount(), nanos, allocated, retained);
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // gc不保证一次就回收干净，多跑几次直到不再下降
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(20);
+            long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used) {
+                break;
+            }
+            used = current;
+        }
+        return used;
+    }
+
+    private static void report(List<Result> results) throws IOException {
+        String header = "modules,routes,register_ms,ns_per_route,allocated_bytes,bytes_per_route,retained_bytes";
+        System.out.println("RegistrationBenchmark");
+        System.out.println(header);
+        for (Result result : results) {
+            System.out.println(result.csv());
+        }
+        String output = System.getProperty("router.benchmark.output");
+        if (output != null) {
+            try (PrintWriter writer = new PrintWriter(new File(output), "UTF-8")) {
+                writer.println(header);
+                for (Result result : results) {
+                    writer.println(result.csv());
+                }
+            }
+        }
+    }
+
+    private static final class Result {
+        final int modules;
+        final int routes;
+        final long nanos;
+        final long allocated;
+        final long retained;
+
+        Result(int modules, int routes, long nanos, long allocated, long retained) {
+            this.modules = modules;
+            this.routes = routes;
+            this.nanos = nanos;
+            this.allocated = allocated;
+            this.retained = retained;
+        }
+
+        String csv() {
+            return String.format(Locale.US, "%d,%d,%.3f,%d,%d,%d,%d", modules, routes, nanos / 1e6,
+                    nanos / routes, allocated, allocated / routes, retained);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.kronos.router.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * 生成N个模块、每个模块M个@BindRouter的源码，用真正的RouterProcessor逐个模块编译，
+ * 再生成一个和AutoRegister插件产物一样的注册类，依次调用所有RouterInit_*.init()
+ * <p>
+ * 每个模块单独编译一次，和真实工程里每个module各跑一次kapt一致
+ */
+final class SyntheticModules {
+    static final String REGISTRY = "bench.BenchRegistry";
+
+    private final int modules;
+    private final int routes;
+    private final String prefix;
+
+    /**
+     * prefix用来区分每一轮生成的模块，同一个进程里多轮运行时host和类名不会冲突
+     */
+    SyntheticModules(String prefix, int modules, int routes) {
+        this.prefix = prefix;
+        this.modules = modules;
+        this.routes = routes;
+    }
+
+    int routeCount() {
+        return modules * routes;
+    }
+
+    /**
+     * 生成并编译所有模块，返回可以加载注册类的ClassLoader
+     */
+    ClassLoader build(File workDir, ClassLoader parent) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("benchmark needs a JDK, no system java compiler found");
+        }
+        File sources = new File(workDir, "src");
+        File generated = new File(workDir, "generated");
+        File classes = new File(workDir, "classes");
+        classes.mkdirs();
+        String classpath = System.getProperty("java.class.path") + File.pathSeparator + classes;
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        try {
+            for (int i = 0; i < modules; i++) {
+                List<File> files = writeModule(sources, i);
+                File moduleGenerated = new File(generated, moduleName(i));
+                moduleGenerated.mkdirs();
+                compile(compiler, fileManager, files, Arrays.asList(
+                        "-classpath", classpath,
+                        "-processor", "com.kronos.router.RouterProcessor",
+                        "-s", moduleGenerated.getPath(),
+                        "-d", classes.getPath()));
+            }
+            compile(compiler, fileManager, Arrays.asList(writeRegistry(sources)), Arrays.asList(
+                    "-classpath", classpath,
+                    "-proc:none",
+                    "-d", classes.getPath()));
+        } finally {
+            fileManager.close();
+        }
+        return new URLClassLoader(new URL[]{classes.toURI().toURL()}, parent);
+    }
+
+    private void compile(JavaCompiler compiler, StandardJavaFileManager fileManager, List<File> files,
+                         List<String> options) {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Boolean success = compiler.getTask(null, fileManager, diagnostics, options, null,
+                fileManager.getJavaFileObjectsFromFiles(files)).call();
+        if (!Boolean.TRUE.equals(success)) {
+            throw new IllegalStateException("synthetic module compile failed: " + diagnostics.getDiagnostics());
+        }
+    }
+
+    private String moduleName(int module) {
+        return prefix + module;
+    }
+
+    /**
+     * 路由组成：每10个里1个回调，每5个里1个带:id参数，其余是普通页面
+     */
+    private List<File> writeModule(File sources, int module) throws IOException {
+        String packageName = "bench." + moduleName(module);
+        File dir = new File(sources, packageName.replace('.', File.separatorChar));
+        dir.mkdirs();
+        StringBuilder source = new StringBuilder()
+                .append("package ").append(packageName).append(";\n\n")
+                .append("import com.kronos.router.BindModule;\n")
+                .append("import com.kronos.router.BindRouter;\n")
+                .append("import com.kronos.router.RouterCallback;\n")
+                .append("import com.kronos.router.RouterContext;\n\n")
+                .append("@BindModule(\"").append(moduleName(module)).append("\")\n")
+                .append("public class Module {\n");
+        String host = moduleName(module) + ".bench.com";
+        for (int j = 0; j < routes; j++) {
+            if (j % 10 == 9) {
+                source.append("    @BindRouter(urls = \"https://").append(host).append("/callback").append(j)
+                        .append("\", isRunnable = true)\n")
+                        .append("    public static class Page").append(j).append(" implements RouterCallback {\n")
+                        .append("        @Override\n")
+                        .append("        public void run(RouterContext context) {\n")
+                        .append("        }\n")
+                        .append("    }\n\n");
+            } else if (j % 5 == 4) {
+                source.append("    @BindRouter(urls = \"https://").append(host).append("/detail").append(j)
+                        .append("/:id\")\n")
+                        .append("    public static class Page").append(j).append(" {\n")
+                        .append("    }\n\n");
+            } else {
+                source.append("    @BindRouter(urls = \"https://").append(host).append("/page").append(j)
+                        .append("\")\n")
+                        .append("    public static class Page").append(j).append(" {\n")
+                        .append("    }\n\n");
+            }
+        }
+        source.append("}\n");
+        File file = new File(dir, "Module.java");
+        write(file, source);
+        List<File> files = new ArrayList<>();
+        files.add(file);
+        return files;
+    }
+
+    /**
+     * 对应NewAutoRegisterTransform用ASM生成的RouterRegistry.register()
+     */
+    private File writeRegistry(File sources) throws IOException {
+        File dir = new File(sources, "bench");
+        dir.mkdirs();
+        StringBuilder source = new StringBuilder()
+                .append("package bench;\n\n")
+                .append("public class BenchRegistry {\n")
+                .append("    public static void register() {\n");
+        for (int i = 0; i < modules; i++) {
+            source.append("        com.kronos.router.init.RouterInit_").append(moduleName(i)).append(".init();\n");
+        }
+        source.append("    }\n")
+                .append("}\n");
+        File file = new File(dir, "BenchRegistry.java");
+        write(file, source);
+        return file;
+    }
+
+    private static void write(File file, CharSequence content) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.append(content);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.kronos.router.benchmark;
+
+import android.content.Context;
+
+import com.kronos.router.Router;
+import com.kronos.router.RouterCallback;
+import com.kronos.router.RouterContext;
+import com.kronos.router.exception.RouteNotFoundException;
+import com.kronos.router.model.RouteOverride;
+import com.kronos.router.model.RouterCacheStats;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 把录下来的线上url按顺序交给Router解析，统计吞吐、延迟分位、缓存命中率和每次解析的分配
+ * <p>
+ * 路由清单格式和路由覆盖文件一致，多了callback:
+ * <pre>
+ * {"routes": [
+ *   {"url": "https://www.baidu.com/:id", "target": "com.kronos.sample.DetailActivity"},
+ *   {"url": "https://www.baidu.com/share", "callback": true},
+ *   {"url": "https://www.baidu.com/old", "redirect": "https://www.baidu.com/new"},
+ *   {"url": "https://www.baidu.com/broken", "disable": true}
+ * ]}
+ * </pre>
+ * url文件每行一个，空行和#开头的行会被跳过
+ */
+final class TraceReplay {
+    private static final RouterCallback NOOP = new RouterCallback() {
+        @Override
+        public void run(RouterContext context) {
+        }
+    };
+
+    private final Router router;
+    private final Context context;
+    private final String[] urls;
+
+    TraceReplay(Router router, Context context, List<String> urls) {
+        this.router = router;
+        this.context = context;
+        this.urls = urls.toArray(new String[0]);
+    }
+
+    /**
+     * 注册清单里的路由，redirect和disable通过路由覆盖生效，返回注册的路由数
+     */
+    static int loadManifest(Router router, InputStream manifest) throws IOException {
+        List<RouteOverride> overrides = new ArrayList<>();
+        int count = 0;
+        try {
+            JSONArray routes = new JSONObject(read(manifest)).getJSONArray("routes");
+            for (int i = 0; i < routes.length(); i++) {
+                JSONObject item = routes.getJSONObject(i);
+                String url = item.getString("url");
+                if (item.optBoolean("callback")) {
+                    Router.map(url, NOOP);
+                } else if (item.has("target")) {
+                    Router.map(url, item.getString("target"));
+                } else {
+                    overrides.add(new RouteOverride(url, null,
+                            item.has("redirect") ? item.getString("redirect") : null,
+                            item.optBoolean("disable")));
+                    continue;
+                }
+                count++;
+            }
+        } catch (JSONException e) {
+            throw new IOException("Invalid route manifest", e);
+        }
+        if (!overrides.isEmpty()) {
+            router.applyRouteOverrides(overrides);
+        }
+        return count;
+    }
+
+    static List<String> loadUrls(InputStream input) throws IOException {
+        List<String> urls = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    urls.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return urls;
+    }
+
+    int size() {
+        return urls.length;
+    }
+
+    /**
+     * 每个线程把整个trace回放passes遍，起点错开，避免所有线程同时打同一个url
+     */
+    Result run(String label, int threads, final int passes) throws Exception {
+        final long[][] latencies = new long[threads][];
+        final long[] allocated = new long[threads];
+        final int[] notFound = new int[threads];
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < threads; i++) {
+            final int thread = i;
+            final int offset = (int) ((long) urls.length * i / threads);
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        long[] samples = new long[urls.length * passes];
+                        start.await();
+                        long allocatedBefore = allocatedBytes();
+                        int n = 0;
+                        for (int pass = 0; pass < passes; pass++) {
+                            for (int j = 0; j < urls.length; j++) {
+                                long begin = System.nanoTime();
+                                if (!resolve(urls[(offset + j) % urls.length])) {
+                                    notFound[thread]++;
+                                }
+                                samples[n++] = System.nanoTime() - begin;
+                            }
+                        }
+                        allocated[thread] = allocatedBytes() - allocatedBefore;
+                        latencies[thread] = samples;
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "router-replay-" + i).start();
+        }
+        RouterCacheStats cacheBefore = router.cacheStats();
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long wall = System.nanoTime() - begin;
+        RouterCacheStats cache = router.cacheStats().minus(cacheBefore);
+        if (!failures.isEmpty()) {
+            AssertionError error = new AssertionError("replay failed: " + failures.peek());
+            error.initCause(failures.peek());
+            throw error;
+        }
+        long[] merged = new long[0];
+        long totalAllocated = 0;
+        int totalNotFound = 0;
+        for (int i = 0; i < threads; i++) {
+            long[] samples = latencies[i];
+            int length = merged.length;
+            merged = Arrays.copyOf(merged, length + samples.length);
+            System.arraycopy(samples, 0, merged, length, samples.length);
+            totalAllocated += allocated[i];
+            totalNotFound += notFound[i];
+        }
+        Arrays.sort(merged);
+        return new Result(label, threads, merged, wall, cache, totalAllocated, totalNotFound);
+    }
+
+    /**
+     * 和打开页面走同一条解析路径，只是不startActivity，回调路由也不执行
+     */
+    private boolean resolve(String url) {
+        try {
+            router.intentFor(context, url);
+            return true;
+        } catch (RouteNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static String read(InputStream input) throws IOException {
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toString("UTF-8");
+        } finally {
+            input.close();
+        }
+    }
+
+    static final class Result {
+        static final String HEADER = "run,threads,resolutions,ops_per_sec,p50_ns,p99_ns,max_ns,"
+                + "cache_hit_rate,cache_hits,cache_misses,not_found,bytes_per_resolution";
+
+        final String label;
+        final int threads;
+        final long[] sortedLatencies;
+        final long wallNanos;
+        final RouterCacheStats cache;
+        final long allocated;
+        final int notFound;
+
+        Result(String label, int threads, long[] sortedLatencies, long wallNanos, RouterCacheStats cache,
+               long allocated, int notFound) {
+            this.label = label;
+            this.threads = threads;
+            this.sortedLatencies = sortedLatencies;
+            this.wallNanos = wallNanos;
+            this.cache = cache;
+            this.allocated = allocated;
+            this.notFound = notFound;
+        }
+
+        long percentile(double p) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+        }
+
+        String csv() {
+            int count = sortedLatencies.length;
+            return String.format(Locale.US, "%s,%d,%d,%.0f,%d,%d,%d,%.4f,%d,%d,%d,%d", label, threads, count,
+                    count * 1e9 / Math.max(1, wallNanos), percentile(0.5), percentile(0.99),
+                    count == 0 ? 0 : sortedLatencies[count - 1], cache.getHitRate(), cache.getHits(),
+                    cache.getMisses(), notFound, count == 0 ? 0 : allocated / count);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.kronos.router.benchmark;
+
+import com.kronos.router.Router;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用录制的线上url回放路由解析，对比匹配和缓存改动前后的表现
+ * <p>
+ * 默认跳过，用-Drouter.benchmark=true打开，不指定文件时用test resources里的示例trace：
+ * <pre>
+ * ./gradlew :RouterLib:testDebugUnitTest --tests '*TraceReplayBenchmark' -Drouter.benchmark=true \
+ *     -Drouter.replay.manifest=/path/routes.json -Drouter.replay.urls=/path/urls.txt \
+ *     -Drouter.replay.threads=1,4,8 -Drouter.replay.passes=20
+ * </pre>
+ * 第一行cold是空缓存时单线程回放一遍的结果，之后每个线程数先预热一遍再统计
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TraceReplayBenchmark {
+    private static final String THREADS = System.getProperty("router.replay.threads", "1,4");
+    private static final int PASSES = Integer.getInteger("router.replay.passes", 10);
+
+    @Test
+    public void replay() throws Exception {
+        Assume.assumeTrue("set -Drouter.benchmark=true to run", Boolean.getBoolean("router.benchmark"));
+        Router router = Router.sharedRouter();
+        int routes = TraceReplay.loadManifest(router, open("router.replay.manifest", "replay/routes.json"));
+        TraceReplay replay = new TraceReplay(router, RuntimeEnvironment.application,
+                TraceReplay.loadUrls(open("router.replay.urls", "replay/urls.txt")));
+
+        List<TraceReplay.Result> results = new ArrayList<>();
+        results.add(replay.run("cold", 1, 1));
+        for (String value : THREADS.split(",")) {
+            int threads = Integer.parseInt(value.trim());
+            replay.run("warmup", threads, 1);
+            results.add(replay.run("steady", threads, PASSES));
+        }
+
+        System.out.println("TraceReplayBenchmark routes=" + routes + " urls=" + replay.size());
+        System.out.println(TraceReplay.Result.HEADER);
+        for (TraceReplay.Result result : results) {
+            System.out.println(result.csv());
+        }
+        String output = System.getProperty("router.benchmark.output");
+        if (output != null) {
+            try (PrintWriter writer = new PrintWriter(new File(output), "UTF-8")) {
+                writer.println(TraceReplay.Result.HEADER);
+                for (TraceReplay.Result result : results) {
+                    writer.println(result.csv());
+                }
+            }
+        }
+    }
+
+    private InputStream open(String property, String resource) throws IOException {
+        String path = System.getProperty(property);
+        if (path != null) {
+            return new FileInputStream(path);
+        }
+        InputStream input = getClass().getClassLoader().getResourceAsStream(resource);
+        if (input == null) {
+            throw new IOException("missing test resource " + resource);
+        }
+        return input;
+    }
+}
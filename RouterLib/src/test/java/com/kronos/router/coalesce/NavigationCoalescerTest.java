@@ -0,0 +1,181 @@
+package com.kronos.router.coalesce;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.Intent;
+
+import com.kronos.router.Router;
+import com.kronos.router.RouterCallback;
+import com.kronos.router.RouterContext;
+import com.kronos.router.exception.RouteNotFoundException;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class NavigationCoalescerTest {
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final Router router = Router.sharedRouter();
+
+    @After
+    public void tearDown() {
+        router.disableNavigationCoalescing();
+    }
+
+    @Test
+    public void duplicatesPassAgainAfterWindow() {
+        NavigationCoalescer coalescer = new NavigationCoalescer(500, NavigationCoalescer.Key.URL);
+        long start = 1000;
+        assertTrue(coalescer.tryOpen("https://coalesce.test/a", start));
+        assertFalse(coalescer.tryOpen("https://coalesce.test/a", start + WINDOW_NANOS - 1));
+        assertTrue(coalescer.tryOpen("https://coalesce.test/b", start + 1));
+        assertTrue(coalescer.tryOpen("https://coalesce.test/a", start + WINDOW_NANOS));
+        // 窗口从最后一次通过的时间重新计算
+        assertFalse(coalescer.tryOpen("https://coalesce.test/a", start + WINDOW_NANOS + 1));
+        assertEquals(2, coalescer.droppedCount());
+    }
+
+    @Test
+    public void releaseOnlyClearsOwnSlot() {
+        NavigationCoalescer coalescer = new NavigationCoalescer(500, NavigationCoalescer.Key.URL);
+        assertTrue(coalescer.tryOpen("https://coalesce.test/a", 1000));
+        coalescer.release("https://coalesce.test/a", 1000);
+        assertTrue(coalescer.tryOpen("https://coalesce.test/a", 1001));
+        // 之前那次已经被覆盖，还回去不能清掉新的记录
+        coalescer.release("https://coalesce.test/a", 1000);
+        assertFalse(coalescer.tryOpen("https://coalesce.test/a", 1002));
+    }
+
+    @Test
+    public void concurrentDuplicatesPassOnce() throws Exception {
+        final NavigationCoalescer coalescer = new NavigationCoalescer(60000, NavigationCoalescer.Key.URL);
+        final int threads = 8;
+        final int urls = 32;
+        final int perThread = 2000;
+        final long now = System.nanoTime();
+        final AtomicIntegerArray passed = new AtomicIntegerArray(urls);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int n = 0; n < perThread; n++) {
+                            int i = (n + thread) % urls;
+                            if (coalescer.tryOpen("https://coalesce.test/page/" + i, now)) {
+                                passed.incrementAndGet(i);
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        // 槽位冲突时最多多放过几次，但每个url至少要打开一次，而且绝大部分重复都被合并掉
+        long total = 0;
+        for (int i = 0; i < urls; i++) {
+            assertTrue("url " + i + " never opened", passed.get(i) >= 1);
+            total += passed.get(i);
+        }
+        assertEquals((long) threads * perThread, total + coalescer.droppedCount());
+        assertTrue("too few coalesced: " + coalescer.droppedCount(),
+                coalescer.droppedCount() >= (long) threads * perThread / 2);
+    }
+
+    @Test
+    public void templateKeyCoalescesDifferentArgs() {
+        Router.map("https://coalesce.test/item/:id", "com.kronos.sample.ItemActivity");
+        Router.map("https://coalesce.test/other/:id", "com.kronos.sample.OtherActivity");
+        router.enableNavigationCoalescing(60000, NavigationCoalescer.Key.TEMPLATE);
+        CapturingContext context = new CapturingContext(RuntimeEnvironment.application);
+
+        router.open("https://coalesce.test/item/1", context);
+        router.open("https://coalesce.test/item/2", context);
+        router.open("https://coalesce.test/other/1", context);
+
+        assertEquals(2, context.started.size());
+        assertEquals("1", context.started.get(0).getStringExtra("id"));
+        assertEquals("com.kronos.sample.OtherActivity", context.started.get(1).getComponent().getClassName());
+        assertEquals(1, router.getNavigationCoalescer().droppedCount());
+    }
+
+    @Test
+    public void failedOpenCanBeRetried() {
+        final AtomicInteger runs = new AtomicInteger();
+        Router.map("https://coalesce.test/flaky", new RouterCallback() {
+            @Override
+            public void run(RouterContext context) {
+                if (runs.incrementAndGet() == 1) {
+                    throw new IllegalStateException("first open fails");
+                }
+            }
+        });
+        for (NavigationCoalescer.Key key : NavigationCoalescer.Key.values()) {
+            runs.set(0);
+            router.enableNavigationCoalescing(60000, key);
+            try {
+                router.open("https://coalesce.test/flaky", RuntimeEnvironment.application);
+                fail("first open did not fail");
+            } catch (IllegalStateException expected) {
+            }
+            router.open("https://coalesce.test/flaky", RuntimeEnvironment.application);
+            assertEquals(key.name(), 2, runs.get());
+            // 成功之后才记下来，窗口内再打开会被合并
+            router.open("https://coalesce.test/flaky", RuntimeEnvironment.application);
+            assertEquals(key.name(), 2, runs.get());
+        }
+    }
+
+    @Test
+    public void missingRouteCanBeRetriedOnceMapped() {
+        router.enableNavigationCoalescing(60000, NavigationCoalescer.Key.URL);
+        CapturingContext context = new CapturingContext(RuntimeEnvironment.application);
+        try {
+            router.open("https://coalesce.test/late", context);
+            fail("unmapped route opened");
+        } catch (RouteNotFoundException expected) {
+        }
+        Router.map("https://coalesce.test/late", "com.kronos.sample.LateActivity");
+        router.open("https://coalesce.test/late", context);
+        assertEquals(1, context.started.size());
+    }
+
+    private static final class CapturingContext extends ContextWrapper {
+        final List<Intent> started = new ArrayList<>();
+
+        CapturingContext(Context base) {
+            super(base);
+        }
+
+        @Override
+        public void startActivity(Intent intent) {
+            started.add(intent);
+        }
+    }
+}
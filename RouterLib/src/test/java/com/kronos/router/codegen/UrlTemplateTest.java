@@ -0,0 +1,51 @@
+package com.kronos.router.codegen;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 编译期拆分的模板要和运行时Uri.getPath()以及RouterUtils的参数规则一致
+ */
+public class UrlTemplateTest {
+
+    @Test
+    public void defaultParamIsNumeric() {
+        UrlTemplate template = UrlTemplate.parse("https://t.test/item/:id");
+        assertEquals("/item/:id", template.path);
+        assertEquals(Arrays.asList("https://t.test/item/", ""), template.literals);
+        assertEquals(Collections.singletonList("id"), template.params);
+        assertEquals(Collections.singletonList(true), template.numeric);
+    }
+
+    @Test
+    public void unitsAreStrippedFromNames() {
+        UrlTemplate template = UrlTemplate.parse("https://t.test/u/:uid{long}/:name{string}/tail");
+        assertEquals("/u/:uid{long}/:name{string}/tail", template.path);
+        assertEquals(Arrays.asList("https://t.test/u/", "/", "/tail"), template.literals);
+        assertEquals(Arrays.asList("uid", "name"), template.params);
+        assertEquals(Arrays.asList(true, false), template.numeric);
+    }
+
+    @Test
+    public void queryAndFragmentStayInLastLiteral() {
+        UrlTemplate template = UrlTemplate.parse("https://t.test/list/:page?sort=new#top");
+        assertEquals("/list/:page", template.path);
+        assertEquals(Arrays.asList("https://t.test/list/", "?sort=new#top"), template.literals);
+
+        UrlTemplate fragment = UrlTemplate.parse("https://t.test/doc#:notParam");
+        assertEquals("/doc", fragment.path);
+        assertEquals(Collections.<String>emptyList(), fragment.params);
+        assertEquals(Collections.singletonList("https://t.test/doc#:notParam"), fragment.literals);
+    }
+
+    @Test
+    public void hostOnlyHasEmptyPath() {
+        UrlTemplate template = UrlTemplate.parse("https://t.test?x=1");
+        assertEquals("", template.path);
+        assertEquals(Collections.singletonList("https://t.test?x=1"), template.literals);
+    }
+}
@@ -0,0 +1,154 @@
+package com.kronos.router.event;
+
+import com.kronos.router.LazyRouterCallback;
+import com.kronos.router.RouterCallback;
+import com.kronos.router.RouterCallbackFactory;
+import com.kronos.router.RouterContext;
+import com.kronos.router.model.RouterOptions;
+import com.kronos.router.model.RouterParams;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class NavigationEventsTest {
+    private static final int PRODUCERS = 4;
+    private static final int PER_PRODUCER = 2000;
+
+    @Test
+    public void dropOldestKeepsLatestEvents() throws Exception {
+        // 没有监听时不会启动分发线程，事件都留在缓冲区里
+        NavigationEvents events = new NavigationEvents(4, DropPolicy.DROP_OLDEST);
+        NavigationEvent[] published = NavigationRingBufferTest.events(10);
+        for (NavigationEvent event : published) {
+            events.publish(event);
+        }
+        assertEquals(6, events.droppedCount());
+        assertEquals(urls(published, 6, 10), drain(events, 4));
+    }
+
+    @Test
+    public void dropNewestKeepsEarliestEvents() throws Exception {
+        NavigationEvents events = new NavigationEvents(4, DropPolicy.DROP_NEWEST);
+        NavigationEvent[] published = NavigationRingBufferTest.events(10);
+        for (NavigationEvent event : published) {
+            events.publish(event);
+        }
+        assertEquals(6, events.droppedCount());
+        assertEquals(urls(published, 0, 4), drain(events, 4));
+    }
+
+    @Test
+    public void slowListenerNeverBlocksPublishAndKeepsProducerOrder() throws Exception {
+        for (DropPolicy policy : DropPolicy.values()) {
+            final NavigationEvents events = new NavigationEvents(16, policy);
+            final AtomicLong delivered = new AtomicLong();
+            final int[] lastSeen = new int[PRODUCERS];
+            final Queue<String> disorder = new ConcurrentLinkedQueue<>();
+            events.addListener(new NavigationListener() {
+                @Override
+                public void onNavigation(NavigationEvent event) {
+                    // url是 https://events.test/<producer>/<sequence>，只在分发线程里读写lastSeen
+                    String[] parts = event.getUrl().substring("https://events.test/".length()).split("/");
+                    int producer = Integer.parseInt(parts[0]);
+                    int sequence = Integer.parseInt(parts[1]);
+                    if (sequence <= lastSeen[producer]) {
+                        disorder.add(event.getUrl());
+                    }
+                    lastSeen[producer] = sequence;
+                    if ((delivered.incrementAndGet() & 63) == 0) {
+                        Thread.yield();
+                    }
+                }
+            });
+            final CountDownLatch done = new CountDownLatch(PRODUCERS);
+            for (int i = 0; i < PRODUCERS; i++) {
+                final int producer = i;
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int n = 1; n <= PER_PRODUCER; n++) {
+                            events.publish(new NavigationEvent("https://events.test/" + producer + "/" + n,
+                                    "events.test", null, null, 0, NavigationEvent.Outcome.OPENED,
+                                    System.currentTimeMillis()));
+                        }
+                        done.countDown();
+                    }
+                }).start();
+            }
+            assertTrue(policy + " publish blocked", done.await(30, TimeUnit.SECONDS));
+            long published = (long) PRODUCERS * PER_PRODUCER;
+            long deadline = System.currentTimeMillis() + 10000;
+            while (delivered.get() + events.droppedCount() < published && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(policy.name(), published, delivered.get() + events.droppedCount());
+            assertTrue(policy + " out of order " + disorder, disorder.isEmpty());
+        }
+    }
+
+    @Test
+    public void lazyCallbackReportsRealTarget() {
+        RouterOptions options = new RouterOptions();
+        options.setCallback(new LazyRouterCallback(new RouterCallbackFactory() {
+            @Override
+            public RouterCallback create() {
+                return new ShareCallback();
+            }
+        }, false, ShareCallback.class.getName()));
+        RouterParams params = new RouterParams();
+        params.setHost("events.test");
+        params.setUrl("/share");
+        params.setRouterOptions(options);
+
+        NavigationEvent opened = NavigationEvent.of("https://events.test/share", params, 1, null);
+        assertEquals(NavigationEvent.Outcome.CALLBACK, opened.getOutcome());
+        assertEquals(ShareCallback.class.getName(), opened.getTarget());
+        assertEquals(ShareCallback.class.getName(),
+                NavigationEvent.coalesced("https://events.test/share", params, 1).getTarget());
+    }
+
+    public static class ShareCallback implements RouterCallback {
+        @Override
+        public void run(RouterContext context) {
+        }
+    }
+
+    private static List<String> drain(NavigationEvents events, int expected) throws InterruptedException {
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        events.addListener(new NavigationListener() {
+            @Override
+            public void onNavigation(NavigationEvent event) {
+                received.add(event.getUrl());
+            }
+        });
+        long deadline = System.currentTimeMillis() + 5000;
+        while (received.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        return new ArrayList<>(received);
+    }
+
+    private static List<String> urls(NavigationEvent[] events, int from, int to) {
+        List<String> urls = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            urls.add(events[i].getUrl());
+        }
+        return urls;
+    }
+}
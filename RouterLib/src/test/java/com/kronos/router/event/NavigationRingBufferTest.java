@@ -0,0 +1,68 @@
+package com.kronos.router.event;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class NavigationRingBufferTest {
+
+    @Test
+    public void capacityRoundsUpToPowerOfTwo() {
+        assertEquals(2, new NavigationRingBuffer(1).capacity());
+        assertEquals(8, new NavigationRingBuffer(5).capacity());
+        assertEquals(16, new NavigationRingBuffer(16).capacity());
+    }
+
+    @Test
+    public void fullBufferRejectsUntilPolled() {
+        NavigationRingBuffer buffer = new NavigationRingBuffer(4);
+        NavigationEvent[] events = events(5);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(events[i]));
+        }
+        assertFalse(buffer.offer(events[4]));
+        assertSame(events[0], buffer.poll());
+        assertTrue(buffer.offer(events[4]));
+        for (int i = 1; i < 5; i++) {
+            assertSame(events[i], buffer.poll());
+        }
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void wrapsAroundInOrder() {
+        NavigationRingBuffer buffer = new NavigationRingBuffer(4);
+        NavigationEvent[] events = events(3 * 25);
+        // 每轮放3个取3个，入队位置会绕过槽位很多圈
+        for (int round = 0; round < 25; round++) {
+            assertTrue(buffer.isEmpty());
+            for (int i = 0; i < 3; i++) {
+                assertTrue(buffer.offer(events[round * 3 + i]));
+            }
+            assertFalse(buffer.isEmpty());
+            for (int i = 0; i < 3; i++) {
+                assertSame(events[round * 3 + i], buffer.poll());
+            }
+        }
+        assertNull(buffer.poll());
+    }
+
+    static NavigationEvent[] events(int count) {
+        NavigationEvent[] events = new NavigationEvent[count];
+        for (int i = 0; i < count; i++) {
+            events[i] = new NavigationEvent("https://events.test/" + i, "events.test", null, null, 0,
+                    NavigationEvent.Outcome.OPENED, System.currentTimeMillis());
+        }
+        return events;
+    }
+}
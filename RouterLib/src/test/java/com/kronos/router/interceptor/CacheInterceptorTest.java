@@ -0,0 +1,78 @@
+package com.kronos.router.interceptor;
+
+import com.kronos.router.model.HostParams;
+import com.kronos.router.model.RouterOptions;
+import com.kronos.router.model.RouterParams;
+import com.kronos.router.utils.StripedCounter;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class CacheInterceptorTest {
+    private static final String URL = "https://cache.test/page";
+
+    private final ConcurrentMap<String, RouterParams> cache = new ConcurrentHashMap<>();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final CacheInterceptor interceptor = new CacheInterceptor(cache, new StripedCounter(),
+            new StripedCounter(), generation);
+
+    @Test
+    public void resolvedRouteIsCached() throws Exception {
+        RouterParams params = interceptor.intercept(chain(false));
+        assertNotNull(params);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void clearDuringResolveDropsTheResult() throws Exception {
+        // 解析过程中缓存被清空，比如scope在另一个线程detach
+        RouterParams params = interceptor.intercept(chain(true));
+        assertNotNull(params);
+        assertTrue(cache.isEmpty());
+    }
+
+    private Interceptor.Chain chain(final boolean clearWhileResolving) {
+        final HostParams hostParams = new HostParams("cache.test");
+        hostParams.setRoute("/page", new RouterOptions());
+        final Map<String, HostParams> hosts = new HashMap<>();
+        hosts.put("cache.test", hostParams);
+        return new Interceptor.Chain() {
+            @Override
+            public String url() {
+                return URL;
+            }
+
+            @Override
+            public RouterParams proceed(String url) {
+                if (clearWhileResolving) {
+                    generation.incrementAndGet();
+                    cache.clear();
+                }
+                RouterParams params = new RouterParams();
+                params.setHost("cache.test");
+                params.setUrl("/page");
+                params.setRouteEntries(hostParams.getEntries());
+                return params;
+            }
+
+            @Override
+            public Map<String, HostParams> getHostParams() {
+                return hosts;
+            }
+        };
+    }
+}
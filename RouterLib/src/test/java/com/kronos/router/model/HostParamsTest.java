@@ -0,0 +1,94 @@
+package com.kronos.router.model;
+
+import android.os.Bundle;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class HostParamsTest {
+
+    @Test
+    public void flushSortsAndKeepsHeavierRoute() {
+        HostParams hostParams = new HostParams("model.test");
+        RouterOptions first = options("First", 0);
+        RouterOptions heavier = options("Heavier", 2);
+        hostParams.stageRoute("/b", first);
+        hostParams.stageRoute("/a", options("A", 0));
+        hostParams.stageRoute("/b", heavier);
+        hostParams.stageRoute("/b", options("Same", 2));
+        assertEquals(0, hostParams.getEntries().getSize());
+
+        hostParams.flush();
+        RouteEntries entries = hostParams.getEntries();
+        assertEquals(Arrays.asList("/a", "/b"), Arrays.asList(entries.getPaths()));
+        assertSame(heavier, entries.getOptions()[1]);
+        assertEquals(Arrays.asList("b"), Arrays.asList(entries.getSegments()[1]));
+    }
+
+    @Test
+    public void setRoutesMergesLikeSetRoute() {
+        HostParams existing = new HostParams("model.test");
+        RouterOptions kept = options("Kept", 1);
+        existing.setRoute("/a", options("A", 0));
+        existing.setRoute("/c", kept);
+        existing.setRoute("/d", options("D", 0));
+
+        HostParams module = new HostParams("model.test");
+        RouterOptions replaced = options("Replaced", 1);
+        module.stageRoute("/b", options("B", 0));
+        module.stageRoute("/c", options("Lighter", 1));
+        module.stageRoute("/d", replaced);
+        module.flush();
+
+        existing.setRoutes(module.getEntries());
+        RouteEntries entries = existing.getEntries();
+        assertEquals(Arrays.asList("/a", "/b", "/c", "/d"), Arrays.asList(entries.getPaths()));
+        assertSame(kept, existing.getOptions("/c"));
+        assertSame(replaced, existing.getOptions("/d"));
+    }
+
+    @Test
+    public void routesIsReadOnlyView() {
+        HostParams hostParams = new HostParams("model.test");
+        hostParams.setRoute("/a", options("A", 0));
+        hostParams.setRoute("/b", options("B", 0));
+        Map<String, RouterOptions> routes = hostParams.getRoutes();
+        assertSame(routes, hostParams.getRoutes());
+        assertEquals(new ArrayList<>(Arrays.asList("/a", "/b")), new ArrayList<>(routes.keySet()));
+        assertNotNull(routes.get("/b"));
+        try {
+            routes.put("/c", options("C", 0));
+            fail("routes view accepted a write");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void defaultParamsIsNeverNull() {
+        RouterOptions options = new RouterOptions();
+        Bundle params = options.getDefaultParams();
+        assertNotNull(params);
+        params.putString("from", "test");
+        assertEquals("test", options.getDefaultParams().getString("from"));
+    }
+
+    private static RouterOptions options(String name, int weight) {
+        RouterOptions options = new RouterOptions();
+        options.setOpenClassName("com.kronos.sample." + name + "Activity");
+        options.setWeight(weight);
+        return options;
+    }
+}
@@ -0,0 +1,150 @@
+package com.kronos.router.model;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+
+import com.kronos.router.RouterContext;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ParamMapTest {
+
+    @Test
+    public void decodesPlusAsSpaceAndEncodedPlus() {
+        String url = "https://param.test/search?q=a+b&plus=1%2B1&name=%E4%B8%AD+%26";
+        ParamMap params = new ParamMap(url, null);
+        assertEquals("a b", params.get("q"));
+        assertEquals("1+1", params.get("plus"));
+        assertEquals("中 &", params.get("name"));
+        assertSameAsUri(url, params, "q", "plus", "name");
+        assertEquals("a b", params.toMap().get("q"));
+    }
+
+    @Test
+    public void duplicateKeysUseFirstValue() {
+        ParamMap params = new ParamMap("https://param.test/list?tag=first&tag=second&other=1&tag=third", null);
+        assertEquals("first", params.get("tag"));
+        assertEquals("first", params.toMap().get("tag"));
+        assertEquals("first", params.toBundle().getString("tag"));
+        assertEquals("first", intent(params).getStringExtra("tag"));
+    }
+
+    @Test
+    public void fragmentIsNotPartOfQuery() {
+        String url = "https://param.test/page?a=1&b=2#section?c=3&b=4";
+        ParamMap params = new ParamMap(url, null);
+        assertEquals("2", params.get("b"));
+        assertNull(params.get("c"));
+        assertFalse(params.toMap().containsKey("c"));
+        assertEquals(url, params.get(ParamMap.TARGET_URL));
+
+        ParamMap noQuery = new ParamMap("https://param.test/page#frag?a=1", null);
+        assertNull(noQuery.get("a"));
+        assertEquals(1, noQuery.size());
+    }
+
+    @Test
+    public void emptyValues() {
+        String url = "https://param.test/page?empty=&flag&&last=x&";
+        ParamMap params = new ParamMap(url, null);
+        assertEquals("", params.get("empty"));
+        assertEquals("", params.get("flag"));
+        assertEquals("x", params.get("last"));
+        assertSameAsUri(url, params, "empty", "flag", "last");
+        Map<String, String> all = params.toMap();
+        Bundle extras = intent(params).getExtras();
+        // putInto直接从原始url写，结果要和完整解码的Map一致
+        assertEquals(all.keySet(), extras.keySet());
+        for (Map.Entry<String, String> entry : all.entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue(), extras.getString(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void targetUrlWinsOverQueryWinsOverPath() {
+        Map<String, String> path = new HashMap<>();
+        path.put("id", "path");
+        path.put("only", "path");
+        path.put(ParamMap.TARGET_URL, "path");
+        String url = "https://param.test/item/path?id=query&targetUrl=query";
+        ParamMap params = new ParamMap(url, path);
+        assertEquals("query", params.get("id"));
+        assertEquals("path", params.get("only"));
+        assertEquals(url, params.get(ParamMap.TARGET_URL));
+
+        Map<String, String> all = params.toMap();
+        assertEquals("query", all.get("id"));
+        assertEquals(url, all.get(ParamMap.TARGET_URL));
+        Intent intent = intent(params);
+        assertEquals("query", intent.getStringExtra("id"));
+        assertEquals("path", intent.getStringExtra("only"));
+        assertEquals(url, intent.getStringExtra(ParamMap.TARGET_URL));
+    }
+
+    @Test
+    public void routerContextsDoNotShareWrites() throws Exception {
+        ParamMap params = new ParamMap("https://param.test/item?id=1", null);
+        RouterContext first = new RouterContext(params, new Bundle(), RuntimeEnvironment.application);
+        RouterContext second = new RouterContext(params, new Bundle(), RuntimeEnvironment.application);
+        first.getParams().put("id", "2");
+        assertEquals("2", first.getParamMap().get("id"));
+        assertEquals("1", second.getParams().get("id"));
+        assertEquals("1", params.get("id"));
+        // 预编译的回调按Map签名调用getParams()
+        assertEquals(Map.class, RouterContext.class.getMethod("getParams").getReturnType());
+    }
+
+    @Test
+    public void copiesAreWritableAndIndependent() {
+        ParamMap cached = new ParamMap("https://param.test/item?id=1&token=t", null);
+        ParamMap opened = cached.copy();
+        opened.put("id", "2");
+        opened.remove("token");
+        assertEquals("2", opened.get("id"));
+        assertFalse(opened.containsKey("token"));
+        assertEquals("2", intent(opened).getStringExtra("id"));
+        assertEquals("1", cached.get("id"));
+        assertEquals("t", cached.get("token"));
+
+        ParamMap cleared = cached.copy();
+        Iterator<Map.Entry<String, String>> iterator = cleared.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getKey().equals("token")) {
+                iterator.remove();
+            }
+        }
+        assertFalse(cleared.containsKey("token"));
+        cleared.clear();
+        assertTrue(cleared.isEmpty());
+        assertEquals(3, cached.size());
+    }
+
+    private static Intent intent(ParamMap params) {
+        Intent intent = new Intent();
+        params.putInto(intent);
+        return intent;
+    }
+
+    private static void assertSameAsUri(String url, ParamMap params, String... keys) {
+        Uri uri = Uri.parse(url);
+        for (String key : keys) {
+            assertEquals(key, uri.getQueryParameter(key), params.get(key));
+        }
+    }
+}
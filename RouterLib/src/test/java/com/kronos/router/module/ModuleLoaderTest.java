@@ -0,0 +1,133 @@
+package com.kronos.router.module;
+
+import com.kronos.router.exception.ModuleInitException;
+import com.kronos.router.model.HostParams;
+import com.kronos.router.model.RouterOptions;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ModuleLoaderTest {
+
+    @Test
+    public void serialLoadMergesStagedTableOnce() {
+        final Map<String, HostParams> merged = new HashMap<>();
+        new ModuleLoader().load("serial", new String[]{"serial.test"}, new Runnable() {
+            @Override
+            public void run() {
+                HostParams hostParams = new HostParams("serial.test");
+                hostParams.stageRoute("/b", new RouterOptions());
+                hostParams.stageRoute("/a", new RouterOptions());
+                ModuleLoader.stagingTable().put("serial.test", hostParams);
+            }
+        }, new ModuleLoader.TableMerger() {
+            @Override
+            public void merge(Map<String, HostParams> staged) {
+                merged.putAll(staged);
+            }
+        });
+        assertNull(ModuleLoader.stagingTable());
+        HostParams hostParams = merged.get("serial.test");
+        hostParams.flush();
+        assertEquals(2, hostParams.getEntries().getSize());
+    }
+
+    @Test
+    public void failedModuleIsReportedForItsHosts() {
+        final IllegalStateException cause = new IllegalStateException("broken module");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ModuleLoader loader = new ModuleLoader();
+        loader.setExecutor(executor);
+        loader.load("broken", new String[]{"broken.test"}, new Runnable() {
+            @Override
+            public void run() {
+                throw cause;
+            }
+        }, new ModuleLoader.TableMerger() {
+            @Override
+            public void merge(Map<String, HostParams> staged) {
+                fail("failed module merged");
+            }
+        });
+        try {
+            loader.awaitUrl("https://broken.test/page");
+            fail("failure not surfaced");
+        } catch (ModuleInitException expected) {
+            assertSame(cause, expected.getCause());
+        }
+        // 其他host不受影响
+        loader.awaitUrl("https://other.test/page");
+        executor.shutdown();
+    }
+
+    @Test
+    public void idleActionSeesFailedModule() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        final ModuleLoader loader = new ModuleLoader();
+        loader.setExecutor(executor);
+        final CountDownLatch release = new CountDownLatch(1);
+        loader.load("healthy", new String[]{"healthy.test"}, new Runnable() {
+            @Override
+            public void run() {
+                await(release);
+            }
+        }, new ModuleLoader.TableMerger() {
+            @Override
+            public void merge(Map<String, HostParams> staged) {
+            }
+        });
+        loader.load("broken", new String[]{"broken.test"}, new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("broken module");
+            }
+        }, new ModuleLoader.TableMerger() {
+            @Override
+            public void merge(Map<String, HostParams> staged) {
+                fail("failed module merged");
+            }
+        });
+        assertFalse(loader.hasFailures());
+        // Router在这里决定要不要保存路由快照
+        final AtomicBoolean failedWhenIdle = new AtomicBoolean();
+        final CountDownLatch idle = new CountDownLatch(1);
+        loader.whenIdle(new Runnable() {
+            @Override
+            public void run() {
+                failedWhenIdle.set(loader.hasFailures());
+                idle.countDown();
+            }
+        });
+        release.countDown();
+        assertTrue(idle.await(5, TimeUnit.SECONDS));
+        assertTrue(failedWhenIdle.get());
+        executor.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.kronos.router.override;
+
+import android.content.Context;
+
+import com.kronos.router.Router;
+import com.kronos.router.exception.RouteNotFoundException;
+import com.kronos.router.model.RouteOverride;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RouteOverridesTest {
+    private final Context context = RuntimeEnvironment.application;
+    private final Router router = Router.sharedRouter();
+
+    @Test
+    public void applyThenRevert() {
+        Router.map("https://override.test/page", "com.kronos.sample.OldActivity");
+        Router.map("https://override.test/new", "com.kronos.sample.NewActivity");
+
+        router.applyRouteOverrides(Collections.singletonList(
+                new RouteOverride("https://override.test/page", "com.kronos.sample.PatchedActivity", null, false)));
+        assertEquals("com.kronos.sample.PatchedActivity", target("https://override.test/page"));
+
+        router.applyRouteOverrides(Collections.singletonList(
+                new RouteOverride("https://override.test/page", null, "https://override.test/new", false)));
+        assertEquals("com.kronos.sample.NewActivity", target("https://override.test/page"));
+
+        router.applyRouteOverrides(Collections.singletonList(
+                new RouteOverride("https://override.test/page", null, null, true)));
+        try {
+            target("https://override.test/page");
+            fail("disabled route opened");
+        } catch (RouteNotFoundException expected) {
+        }
+
+        router.applyRouteOverrides(Collections.<RouteOverride>emptyList());
+        assertEquals("com.kronos.sample.OldActivity", target("https://override.test/page"));
+    }
+
+    @Test
+    public void revertRemovesRoutesAddedByOverride() {
+        router.applyRouteOverrides(Collections.singletonList(
+                new RouteOverride("https://override.test/added", "com.kronos.sample.AddedActivity", null, false)));
+        assertEquals("com.kronos.sample.AddedActivity", target("https://override.test/added"));
+
+        router.applyRouteOverrides(Collections.<RouteOverride>emptyList());
+        try {
+            target("https://override.test/added");
+            fail("reverted route still opens");
+        } catch (RouteNotFoundException expected) {
+        }
+    }
+
+    @Test
+    public void applyIsUnchangedWhenSameOverrides() {
+        List<RouteOverride> overrides = Collections.singletonList(
+                new RouteOverride("https://override.test/same", "com.kronos.sample.SameActivity", null, false));
+        int version = router.applyRouteOverrides(overrides);
+        assertEquals(version, router.applyRouteOverrides(overrides));
+    }
+
+    @Test
+    public void failedApplyKeepsTableAndState() {
+        Router.map("https://override.test/fail", "com.kronos.sample.OldActivity");
+        RouteOverride patch = new RouteOverride("https://override.test/fail", "com.kronos.sample.PatchedActivity",
+                null, false);
+        int version = router.getRouteTableVersion();
+        try {
+            // 没有path的url在修改到一半时失败
+            router.applyRouteOverrides(Arrays.asList(patch,
+                    new RouteOverride("mailto:someone", "com.kronos.sample.MailActivity", null, false)));
+            fail("invalid override applied");
+        } catch (RuntimeException expected) {
+        }
+        assertEquals(version, router.getRouteTableVersion());
+        assertEquals("com.kronos.sample.OldActivity", target("https://override.test/fail"));
+
+        // 失败的那次没有被记成已生效，同样的覆盖还能正常生效
+        router.applyRouteOverrides(Collections.singletonList(patch));
+        assertEquals("com.kronos.sample.PatchedActivity", target("https://override.test/fail"));
+        router.applyRouteOverrides(Collections.<RouteOverride>emptyList());
+        assertEquals("com.kronos.sample.OldActivity", target("https://override.test/fail"));
+    }
+
+    private String target(String url) {
+        return router.intentFor(context, url).getComponent().getClassName();
+    }
+}
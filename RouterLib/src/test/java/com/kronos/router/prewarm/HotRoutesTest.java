@@ -0,0 +1,60 @@
+package com.kronos.router.prewarm;
+
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+
+import com.kronos.router.model.HostParams;
+import com.kronos.router.model.RouterOptions;
+import com.kronos.router.utils.ProcessUtils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class HotRoutesTest {
+
+    @Test
+    public void savesWhenUiHidden() throws Exception {
+        Application application = RuntimeEnvironment.application;
+        RouterOptions options = new RouterOptions();
+        options.setOpenClassName("com.kronos.sample.HotActivity");
+        HostParams hostParams = new HostParams("hot.test");
+        hostParams.setRoute("/page", options);
+        final Map<String, HostParams> hosts = new HashMap<>();
+        hosts.put(hostParams.getHost(), hostParams);
+        File file = new File(application.getFilesDir(),
+                "router/hot_routes" + ProcessUtils.processFileSuffix(application));
+        file.delete();
+
+        new HotRoutes(application, 10, new HotRoutes.TableProvider() {
+            @Override
+            public Map<String, HostParams> getHosts() {
+                return hosts;
+            }
+        }).start();
+        options.recordHit();
+        options.recordHit();
+        // 不用等定期保存，退到后台时就写文件
+        application.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!file.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(file.exists());
+        assertEquals("hot.test\t/page\t2\n", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+}
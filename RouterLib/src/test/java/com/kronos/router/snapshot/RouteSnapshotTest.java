@@ -0,0 +1,186 @@
+package com.kronos.router.snapshot;
+
+import android.content.Intent;
+
+import com.kronos.router.LazyRouterCallback;
+import com.kronos.router.RouterCallback;
+import com.kronos.router.RouterCallbackFactory;
+import com.kronos.router.RouterContext;
+import com.kronos.router.model.HostParams;
+import com.kronos.router.model.RouteOverride;
+import com.kronos.router.model.RouterOptions;
+import com.kronos.router.override.RouteOverrides;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class RouteSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void saveThenLoad() throws Exception {
+        RouterOptions page = new RouterOptions();
+        page.setOpenClassName("com.kronos.sample.DetailActivity");
+        page.setWeight(3);
+        page.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        page.putParams("from", "snapshot");
+        RouterOptions callback = new RouterOptions();
+        callback.setCallback(new LazyRouterCallback(new Factory(), true, Callback.class.getName()));
+
+        HostParams hostParams = new HostParams("snapshot.test");
+        hostParams.setRoute("/detail/:id", page);
+        hostParams.setRoute("/share", callback);
+        Map<String, HostParams> hosts = new HashMap<>();
+        hosts.put(hostParams.getHost(), hostParams);
+
+        File file = new File(folder.getRoot(), "route.snapshot");
+        RouteSnapshot snapshot = new RouteSnapshot(file, "1:0:build:main");
+        snapshot.write(snapshot.serialize(hosts));
+
+        Map<String, HostParams> loaded = snapshot.load();
+        assertNotNull(loaded);
+        HostParams restored = loaded.get("snapshot.test");
+        RouterOptions restoredPage = restored.getOptions("/detail/:id");
+        assertEquals("com.kronos.sample.DetailActivity", restoredPage.getOpenClassName());
+        assertEquals(3, restoredPage.getWeight());
+        assertEquals(Intent.FLAG_ACTIVITY_CLEAR_TOP, restoredPage.getFlags());
+        assertEquals("snapshot", restoredPage.getDefaultParams().getString("from"));
+
+        LazyRouterCallback restoredCallback = (LazyRouterCallback) restored.getOptions("/share").getCallback();
+        assertTrue(restoredCallback.getSingleton());
+        assertEquals(Callback.class.getName(), restoredCallback.getTargetClassName());
+        assertTrue(restoredCallback.getFactory().create() instanceof Callback);
+    }
+
+    @Test
+    public void keyMismatchIsIgnored() throws Exception {
+        Map<String, HostParams> hosts = new HashMap<>();
+        hosts.put("snapshot.test", new HostParams("snapshot.test"));
+        File file = new File(folder.getRoot(), "route.snapshot");
+        RouteSnapshot old = new RouteSnapshot(file, "1:0:build:main");
+        old.write(old.serialize(hosts));
+
+        assertNull(new RouteSnapshot(file, "2:0:build:main").load());
+        assertNotNull(old.load());
+    }
+
+    @Test
+    public void anonymousCallbackIsNotSaved() throws Exception {
+        RouterOptions options = new RouterOptions();
+        options.setCallback(new RouterCallback() {
+            @Override
+            public void run(RouterContext context) {
+            }
+        });
+        HostParams hostParams = new HostParams("snapshot.test");
+        hostParams.setRoute("/anonymous", options);
+        Map<String, HostParams> hosts = new HashMap<>();
+        hosts.put(hostParams.getHost(), hostParams);
+        try {
+            new RouteSnapshot(new File(folder.getRoot(), "route.snapshot"), "key").serialize(hosts);
+            fail("anonymous callback serialized");
+        } catch (RouteSnapshot.UnsupportedRouteException expected) {
+        }
+    }
+
+    @Test
+    public void targetOverrideSavesOriginalTarget() throws Exception {
+        RouterOptions page = new RouterOptions();
+        page.setOpenClassName("com.kronos.sample.DetailActivity");
+        HostParams hostParams = new HostParams("snapshot.test");
+        hostParams.setRoute("/detail", page);
+        Map<String, HostParams> hosts = new HashMap<>();
+        hosts.put(hostParams.getHost(), hostParams);
+        RouteOverrides overrides = new RouteOverrides();
+        RouteOverrides.Plan plan = overrides.plan(hosts, Collections.singletonList(
+                new RouteOverride("https://snapshot.test/detail", "com.kronos.sample.PatchedActivity", null, false)));
+        overrides.commit(plan);
+        assertEquals("com.kronos.sample.PatchedActivity",
+                plan.getTable().get("snapshot.test").getOptions("/detail").getOpenClassName());
+
+        RouteSnapshot snapshot = new RouteSnapshot(new File(folder.getRoot(), "route.snapshot"), "key");
+        snapshot.write(snapshot.serialize(plan.getTable(), overrides.overriddenRoutes()));
+
+        // 下次启动去掉覆盖之后还能回到模块注册的目标
+        assertEquals("com.kronos.sample.DetailActivity",
+                snapshot.load().get("snapshot.test").getOptions("/detail").getOpenClassName());
+    }
+
+    @Test
+    public void routeAddedByOverrideIsNotSaved() throws Exception {
+        Map<String, HostParams> hosts = new HashMap<>();
+        hosts.put("snapshot.test", new HostParams("snapshot.test"));
+        RouteOverrides overrides = new RouteOverrides();
+        RouteOverrides.Plan plan = overrides.plan(hosts, Collections.singletonList(
+                new RouteOverride("https://snapshot.test/added", "com.kronos.sample.AddedActivity", null, false)));
+        overrides.commit(plan);
+        try {
+            new RouteSnapshot(new File(folder.getRoot(), "route.snapshot"), "key")
+                    .serialize(plan.getTable(), overrides.overriddenRoutes());
+            fail("route added by override serialized");
+        } catch (RouteSnapshot.UnsupportedRouteException expected) {
+        }
+    }
+
+    @Test
+    public void sharedCallbackStaysSharedAfterLoad() throws Exception {
+        RouterOptions first = new RouterOptions();
+        RouterOptions second = new RouterOptions();
+        LazyRouterCallback callback = new LazyRouterCallback(new Factory(), true, Callback.class.getName());
+        first.setCallback(callback);
+        second.setCallback(callback);
+        HostParams hostParams = new HostParams("snapshot.test");
+        hostParams.setRoute("/share", first);
+        hostParams.setRoute("/share/again", second);
+        Map<String, HostParams> hosts = new HashMap<>();
+        hosts.put(hostParams.getHost(), hostParams);
+
+        RouteSnapshot snapshot = new RouteSnapshot(new File(folder.getRoot(), "route.snapshot"), "key");
+        snapshot.write(snapshot.serialize(hosts));
+
+        HostParams restored = snapshot.load().get("snapshot.test");
+        assertSame(restored.getOptions("/share").getCallback(), restored.getOptions("/share/again").getCallback());
+    }
+
+    @Test
+    public void brokenFileIsDropped() throws Exception {
+        File file = folder.newFile("route.snapshot");
+        Files.write(file.toPath(), new byte[]{0x4B, 0x52, 0x52, 0x54, 0, 0, 0, 2, 0, 0});
+        assertNull(new RouteSnapshot(file, "key").load());
+        assertFalse(file.exists());
+    }
+
+    public static class Factory implements RouterCallbackFactory {
+        @Override
+        public RouterCallback create() {
+            return new Callback();
+        }
+    }
+
+    public static class Callback implements RouterCallback {
+        @Override
+        public void run(RouterContext context) {
+        }
+    }
+}
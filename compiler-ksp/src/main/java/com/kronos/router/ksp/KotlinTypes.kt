@@ -0,0 +1,87 @@
+package com.kronos.router.ksp
+
+import com.google.devtools.ksp.symbol.KSClassDeclaration
+import com.google.devtools.ksp.symbol.KSType
+import com.google.devtools.ksp.symbol.Variance
+import com.kronos.router.ksp.RouterSymbolProcessor.Companion.toClassName
+import com.squareup.javapoet.ClassName
+import com.squareup.javapoet.ParameterizedTypeName
+import com.squareup.javapoet.TypeName
+import com.squareup.javapoet.WildcardTypeName
+
+/**
+ * ksp里拿到的都是kotlin类型，生成java代码前转换成对应的java类型
+ */
+internal object KotlinTypes {
+    private val PRIMITIVES = mapOf(
+            "kotlin.Int" to TypeName.INT,
+            "kotlin.Long" to TypeName.LONG,
+            "kotlin.Float" to TypeName.FLOAT,
+            "kotlin.Double" to TypeName.DOUBLE,
+            "kotlin.Boolean" to TypeName.BOOLEAN,
+            "kotlin.Short" to TypeName.SHORT,
+            "kotlin.Byte" to TypeName.BYTE,
+            "kotlin.Char" to TypeName.CHAR)
+
+    private val MAPPED = mapOf(
+            "kotlin.Any" to ClassName.get("java.lang", "Object"),
+            "kotlin.String" to ClassName.get("java.lang", "String"),
+            "kotlin.CharSequence" to ClassName.get("java.lang", "CharSequence"),
+            "kotlin.collections.List" to ClassName.get("java.util", "List"),
+            "kotlin.collections.MutableList" to ClassName.get("java.util", "List"),
+            "kotlin.collections.ArrayList" to ClassName.get("java.util", "ArrayList"),
+            "kotlin.collections.Set" to ClassName.get("java.util", "Set"),
+            "kotlin.collections.MutableSet" to ClassName.get("java.util", "Set"),
+            "kotlin.collections.Map" to ClassName.get("java.util", "Map"),
+            "kotlin.collections.MutableMap" to ClassName.get("java.util", "Map"))
+
+    private val READERS = mapOf(
+            "kotlin.Int" to "getInt",
+            "kotlin.Long" to "getLong",
+            "kotlin.Float" to "getFloat",
+            "kotlin.Double" to "getDouble",
+            "kotlin.Boolean" to "getBoolean")
+
+    private val BOXED_READERS = mapOf(
+            "kotlin.Int" to "getBoxedInt",
+            "kotlin.Long" to "getBoxedLong",
+            "kotlin.Float" to "getBoxedFloat",
+            "kotlin.Double" to "getBoxedDouble",
+            "kotlin.Boolean" to "getBoxedBoolean")
+
+    /**
+     * 和kapt一样，基本类型、对应的可空类型和String使用ParamReader的类型方法
+     */
+    fun readerMethod(type: KSType): String? {
+        val name = type.declaration.qualifiedName?.asString() ?: return null
+        if (name == "kotlin.String") {
+            return "getString"
+        }
+        return if (type.isMarkedNullable) BOXED_READERS[name] else READERS[name]
+    }
+
+    fun javaType(type: KSType): TypeName {
+        val name = type.declaration.qualifiedName?.asString()
+        val primitive = PRIMITIVES[name]
+        if (primitive != null) {
+            return if (type.isMarkedNullable) primitive.box() else primitive
+        }
+        val raw = MAPPED[name] ?: (type.declaration as KSClassDeclaration).toClassName()
+        if (type.arguments.isEmpty()) {
+            return raw
+        }
+        val arguments = type.arguments.map { argument ->
+            val argumentType = argument.type?.resolve()
+            when {
+                argumentType == null || argument.variance == Variance.STAR ->
+                    WildcardTypeName.subtypeOf(Object::class.java)
+                argument.variance == Variance.COVARIANT ->
+                    WildcardTypeName.subtypeOf(javaType(argumentType).box())
+                argument.variance == Variance.CONTRAVARIANT ->
+                    WildcardTypeName.supertypeOf(javaType(argumentType).box())
+                else -> javaType(argumentType).box()
+            }
+        }
+        return ParameterizedTypeName.get(raw, *arguments.toTypedArray())
+    }
+}
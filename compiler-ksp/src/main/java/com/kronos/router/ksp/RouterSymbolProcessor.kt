@@ -0,0 +1,196 @@
+package com.kronos.router.ksp
+
+import com.google.devtools.ksp.processing.CodeGenerator
+import com.google.devtools.ksp.processing.Dependencies
+import com.google.devtools.ksp.processing.KSPLogger
+import com.google.devtools.ksp.processing.Resolver
+import com.google.devtools.ksp.processing.SymbolProcessor
+import com.google.devtools.ksp.symbol.ClassKind
+import com.google.devtools.ksp.symbol.FunctionKind
+import com.google.devtools.ksp.symbol.KSAnnotated
+import com.google.devtools.ksp.symbol.KSAnnotation
+import com.google.devtools.ksp.symbol.KSClassDeclaration
+import com.google.devtools.ksp.symbol.KSDeclaration
+import com.google.devtools.ksp.symbol.KSFile
+import com.google.devtools.ksp.symbol.KSFunctionDeclaration
+import com.google.devtools.ksp.symbol.KSPropertyDeclaration
+import com.google.devtools.ksp.symbol.Modifier
+import com.google.devtools.ksp.symbol.Origin
+import com.kronos.router.codegen.InjectModel
+import com.kronos.router.codegen.ModuleModel
+import com.kronos.router.codegen.RouteModel
+import com.kronos.router.codegen.RouterCodeGenerator
+import com.squareup.javapoet.ClassName
+import com.squareup.javapoet.TypeSpec
+import java.io.File
+
+/**
+ * RouterProcessor的ksp版本，解析结果和kapt一样交给RouterCodeGenerator，生成的java代码完全相同
+ */
+class RouterSymbolProcessor @JvmOverloads constructor(private val codeGenerator: CodeGenerator,
+                                                      private val logger: KSPLogger,
+                                                      private val options: Map<String, String> = emptyMap()) : SymbolProcessor {
+
+    override fun process(resolver: Resolver): List<KSAnnotated> {
+        val injectTargets = collectParams(resolver)
+        for ((declaration, model) in injectTargets) {
+            write(RouterCodeGenerator.injectorName(model.target), RouterCodeGenerator.injector(model),
+                    Dependencies(false, *listOfNotNull(declaration.containingFile).toTypedArray()))
+        }
+        val modules = resolver.getSymbolsWithAnnotation(BIND_MODULE).filterIsInstance<KSClassDeclaration>().toList()
+        if (modules.isEmpty()) {
+            return emptyList()
+        }
+        val routes = resolver.getSymbolsWithAnnotation(BIND_ROUTER).toList()
+        for (module in modules) {
+            val annotation = module.annotation(BIND_MODULE) ?: continue
+            val name = annotation.argument("value", "")
+            logger.info("RouterLogger:BindModule:$name")
+            initRouter(module, ModuleModel(name, annotation.strings("processes")), routes, injectTargets)
+        }
+        return emptyList()
+    }
+
+    private fun collectParams(resolver: Resolver): Map<KSClassDeclaration, InjectModel> {
+        val targets = LinkedHashMap<KSClassDeclaration, InjectModel>()
+        for (property in resolver.getSymbolsWithAnnotation(ROUTER_PARAM).filterIsInstance<KSPropertyDeclaration>()) {
+            val type = property.parentDeclaration as? KSClassDeclaration ?: continue
+            if (!isInjectable(property)) {
+                logger.error("RouterLogger:@RouterParam field must not be private, final or static: "
+                        + type.qualifiedName?.asString() + "." + property.simpleName.asString()
+                        + " (use @JvmField for kotlin properties)", property)
+                continue
+            }
+            val model = targets.getOrPut(type) { InjectModel(type.toClassName()) }
+            val fieldName = property.simpleName.asString()
+            val key = property.annotation(ROUTER_PARAM)?.argument("value", "").orEmpty()
+            val fieldType = property.type.resolve()
+            model.fields.add(InjectModel.Field(fieldName, if (key.isEmpty()) fieldName else key,
+                    KotlinTypes.readerMethod(fieldType), KotlinTypes.javaType(fieldType).box()))
+        }
+        return targets
+    }
+
+    private fun isInjectable(property: KSPropertyDeclaration): Boolean {
+        if (property.modifiers.contains(Modifier.PRIVATE) || property.modifiers.contains(Modifier.JAVA_STATIC)) {
+            return false
+        }
+        if (property.origin == Origin.JAVA || property.origin == Origin.JAVA_LIB) {
+            return !property.modifiers.contains(Modifier.FINAL)
+        }
+        // kotlin属性只有@JvmField和lateinit才会生成非private的字段
+        return property.isMutable && (property.hasAnnotation("JvmField")
+                || property.modifiers.contains(Modifier.LATEINIT))
+    }
+
+    private fun initRouter(moduleDeclaration: KSClassDeclaration, module: ModuleModel, routes: List<KSAnnotated>,
+                           injectTargets: Map<KSClassDeclaration, InjectModel>) {
+        val sources = LinkedHashSet<KSFile>()
+        moduleDeclaration.containingFile?.let { sources.add(it) }
+        for (element in routes) {
+            val router = element.annotation(BIND_ROUTER) ?: continue
+            val urls = router.strings("urls")
+            when (element) {
+                is KSClassDeclaration -> {
+                    val className = element.toClassName()
+                    module.routes.add(if (router.argument("isRunnable", false))
+                        RouteModel.callbackClass(className, urls, router.argument("singleton", true))
+                    else
+                        RouteModel.activity(className, urls, router.argument("weight", 0)))
+                }
+                is KSFunctionDeclaration -> {
+                    val owner = callbackOwner(element) ?: continue
+                    module.routes.add(RouteModel.callbackMethod(owner, element.simpleName.asString(), urls))
+                }
+                else -> throw IllegalArgumentException("unknow type")
+            }
+            (element as KSDeclaration).containingFile?.let { sources.add(it) }
+        }
+        for ((declaration, model) in injectTargets) {
+            module.injectTargets.add(model)
+            declaration.containingFile?.let { sources.add(it) }
+        }
+        write(RouterCodeGenerator.moduleClass(module.name), RouterCodeGenerator.moduleInit(module),
+                Dependencies(true, *sources.toTypedArray()))
+        write(RouterCodeGenerator.routesClass(module.name), RouterCodeGenerator.routeRefs(module),
+                Dependencies(true, *sources.toTypedArray()))
+        // 和kapt一样写到META-INF/proguard/router-<module>.pro
+        codeGenerator.createNewFile(Dependencies(true, *sources.toTypedArray()), "META-INF.proguard",
+                "router-" + module.name, "pro")
+                .bufferedWriter()
+                .use { it.write(RouterCodeGenerator.proguardRules(module)) }
+        // 本地library模块用consumerProguardFiles引用这个目录，见README
+        options[RouterCodeGenerator.PROGUARD_DIR_OPTION]?.takeIf { it.isNotEmpty() }?.let {
+            RouterCodeGenerator.writeProguardRules(File(it), module)
+        }
+    }
+
+    /**
+     * 生成的java代码里用Owner.method(context)调用，所以必须能编译成static方法
+     * companion object里的@JvmStatic方法会生成在外部类上
+     */
+    private fun callbackOwner(function: KSFunctionDeclaration): ClassName? {
+        val parent = function.parentDeclaration as? KSClassDeclaration
+        val parameters = function.parameters
+        val isStatic = function.functionKind == FunctionKind.STATIC
+                || function.modifiers.contains(Modifier.JAVA_STATIC)
+                || (parent?.classKind == ClassKind.OBJECT && function.hasAnnotation("JvmStatic"))
+        if (parent == null || !isStatic
+                || function.modifiers.contains(Modifier.PRIVATE)
+                || parameters.size != 1
+                || parameters[0].type.resolve().declaration.qualifiedName?.asString()
+                != RouterCodeGenerator.ROUTER_CONTEXT.toString()) {
+            logger.error("RouterLogger:@BindRouter method must be a non-private static method with a single RouterContext parameter: "
+                    + parent?.qualifiedName?.asString() + "." + function.simpleName.asString()
+                    + " (use @JvmStatic for kotlin objects)", function)
+            return null
+        }
+        if (parent.isCompanionObject) {
+            return (parent.parentDeclaration as KSClassDeclaration).toClassName()
+        }
+        return parent.toClassName()
+    }
+
+    private fun write(name: ClassName, type: TypeSpec.Builder, dependencies: Dependencies) {
+        codeGenerator.createNewFile(dependencies, name.packageName(), name.simpleName(), "java")
+                .bufferedWriter()
+                .use { RouterCodeGenerator.javaFile(name, type).writeTo(it) }
+    }
+
+    companion object {
+        private const val BIND_MODULE = "com.kronos.router.BindModule"
+        private const val BIND_ROUTER = "com.kronos.router.BindRouter"
+        private const val ROUTER_PARAM = "com.kronos.router.RouterParam"
+
+        private fun KSAnnotated.annotation(qualifiedName: String): KSAnnotation? {
+            val shortName = qualifiedName.substringAfterLast('.')
+            return annotations.firstOrNull {
+                it.shortName.asString() == shortName
+                        && it.annotationType.resolve().declaration.qualifiedName?.asString() == qualifiedName
+            }
+        }
+
+        private fun KSAnnotated.hasAnnotation(shortName: String): Boolean {
+            return annotations.any { it.shortName.asString() == shortName }
+        }
+
+        private inline fun <reified T> KSAnnotation.argument(name: String, default: T): T {
+            return arguments.firstOrNull { it.name?.asString() == name }?.value as? T ?: default
+        }
+
+        private fun KSAnnotation.strings(name: String): Array<String> {
+            return when (val value = arguments.firstOrNull { it.name?.asString() == name }?.value) {
+                is List<*> -> value.map { it.toString() }.toTypedArray()
+                is Array<*> -> value.map { it.toString() }.toTypedArray()
+                is String -> arrayOf(value)
+                else -> emptyArray()
+            }
+        }
+
+        fun KSClassDeclaration.toClassName(): ClassName {
+            val packageName = packageName.asString()
+            val simpleNames = qualifiedName!!.asString().removePrefix("$packageName.").split('.')
+            return ClassName.get(packageName, simpleNames[0], *simpleNames.drop(1).toTypedArray())
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.kronos.router.ksp
+
+import com.google.devtools.ksp.processing.SymbolProcessor
+import com.google.devtools.ksp.processing.SymbolProcessorEnvironment
+import com.google.devtools.ksp.processing.SymbolProcessorProvider
+
+class RouterSymbolProcessorProvider : SymbolProcessorProvider {
+    override fun create(environment: SymbolProcessorEnvironment): SymbolProcessor {
+        return RouterSymbolProcessor(environment.codeGenerator, environment.logger, environment.options)
+    }
+}
@@ -0,0 +1,106 @@
+package com.kronos.router.ksp;
+
+import com.google.devtools.ksp.symbol.ClassKind;
+import com.google.devtools.ksp.symbol.KSAnnotation;
+import com.google.devtools.ksp.symbol.KSClassDeclaration;
+import com.google.devtools.ksp.symbol.KSName;
+import com.google.devtools.ksp.symbol.KSType;
+import com.google.devtools.ksp.symbol.KSTypeArgument;
+import com.google.devtools.ksp.symbol.KSTypeReference;
+import com.google.devtools.ksp.symbol.KSValueArgument;
+import com.google.devtools.ksp.symbol.Variance;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import kotlin.collections.CollectionsKt;
+
+/**
+ * 没有ksp编译器时用动态代理拼出processor会读到的符号，没有设置的属性返回空值
+ */
+final class FakeSymbols {
+
+    private FakeSymbols() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T fake(Class<T> type, Object... properties) {
+        final Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < properties.length; i += 2) {
+            values.put((String) properties[i], properties[i + 1]);
+        }
+        return (T) Proxy.newProxyInstance(FakeSymbols.class.getClassLoader(), new Class<?>[]{type},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("equals")) {
+                            return proxy == args[0];
+                        } else if (name.equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        } else if (name.equals("toString")) {
+                            return String.valueOf(values.get("getQualifiedName"));
+                        } else if (values.containsKey(name)) {
+                            Object value = values.get(name);
+                            return value instanceof List && method.getReturnType() == kotlin.sequences.Sequence.class
+                                    ? CollectionsKt.asSequence((List<?>) value) : value;
+                        }
+                        Class<?> returnType = method.getReturnType();
+                        if (returnType == boolean.class) {
+                            return false;
+                        } else if (returnType == kotlin.sequences.Sequence.class) {
+                            return CollectionsKt.asSequence(Collections.emptyList());
+                        } else if (returnType == List.class) {
+                            return Collections.emptyList();
+                        } else if (returnType == java.util.Set.class) {
+                            return Collections.emptySet();
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    static KSName name(String name) {
+        return fake(KSName.class, "asString", name, "getShortName", name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    static KSClassDeclaration classDeclaration(String qualifiedName, ClassKind kind, Object... extra) {
+        List<Object> properties = new ArrayList<>(Arrays.asList(
+                "getQualifiedName", name(qualifiedName),
+                "getSimpleName", name(qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1)),
+                "getPackageName", name(qualifiedName.substring(0, qualifiedName.lastIndexOf('.'))),
+                "getClassKind", kind));
+        properties.addAll(Arrays.asList(extra));
+        return fake(KSClassDeclaration.class, properties.toArray());
+    }
+
+    static KSType type(String qualifiedName, boolean nullable, KSTypeArgument... arguments) {
+        return fake(KSType.class, "getDeclaration", classDeclaration(qualifiedName, ClassKind.CLASS),
+                "isMarkedNullable", nullable, "getArguments", Arrays.asList(arguments));
+    }
+
+    static KSTypeReference reference(KSType type) {
+        return fake(KSTypeReference.class, "resolve", type);
+    }
+
+    static KSTypeArgument argument(Variance variance, KSType type) {
+        return fake(KSTypeArgument.class, "getVariance", variance, "getType", type != null ? reference(type) : null);
+    }
+
+    static KSAnnotation annotation(String qualifiedName, Object... arguments) {
+        List<KSValueArgument> values = new ArrayList<>();
+        for (int i = 0; i < arguments.length; i += 2) {
+            values.add(fake(KSValueArgument.class, "getName", name((String) arguments[i]), "getValue", arguments[i + 1]));
+        }
+        return fake(KSAnnotation.class, "getShortName", name(qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1)),
+                "getAnnotationType", reference(type(qualifiedName, false)),
+                "getArguments", values);
+    }
+}
@@ -0,0 +1,215 @@
+package com.kronos.router.ksp;
+
+import com.google.devtools.ksp.processing.CodeGenerator;
+import com.google.devtools.ksp.processing.Dependencies;
+import com.google.devtools.ksp.processing.KSPLogger;
+import com.google.devtools.ksp.processing.Resolver;
+import com.google.devtools.ksp.symbol.ClassKind;
+import com.google.devtools.ksp.symbol.FunctionKind;
+import com.google.devtools.ksp.symbol.KSAnnotated;
+import com.google.devtools.ksp.symbol.KSClassDeclaration;
+import com.google.devtools.ksp.symbol.KSFunctionDeclaration;
+import com.google.devtools.ksp.symbol.KSPropertyDeclaration;
+import com.google.devtools.ksp.symbol.KSValueParameter;
+import com.google.devtools.ksp.symbol.Modifier;
+import com.google.devtools.ksp.symbol.Origin;
+import com.google.devtools.ksp.symbol.Variance;
+import com.squareup.javapoet.TypeName;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.kronos.router.ksp.FakeSymbols.annotation;
+import static com.kronos.router.ksp.FakeSymbols.argument;
+import static com.kronos.router.ksp.FakeSymbols.classDeclaration;
+import static com.kronos.router.ksp.FakeSymbols.fake;
+import static com.kronos.router.ksp.FakeSymbols.name;
+import static com.kronos.router.ksp.FakeSymbols.reference;
+import static com.kronos.router.ksp.FakeSymbols.type;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用假的符号跑一遍RouterSymbolProcessor，检查生成的文件和kapt路径一致
+ */
+public class RouterSymbolProcessorTest {
+    private final Map<String, ByteArrayOutputStream> files = new LinkedHashMap<>();
+    private final List<String> errors = new ArrayList<>();
+
+    @Test
+    public void generatesModuleInitRoutesAndInjector() {
+        KSClassDeclaration module = classDeclaration("com.kronos.sample.AppModule", ClassKind.CLASS,
+                "getAnnotations", Collections.singletonList(annotation("com.kronos.router.BindModule",
+                        "value", "app", "processes", Collections.emptyList())));
+        KSClassDeclaration activity = classDeclaration("com.kronos.sample.UserActivity", ClassKind.CLASS,
+                "getAnnotations", Collections.singletonList(annotation("com.kronos.router.BindRouter",
+                        "urls", Collections.singletonList("https://www.test/user/:id"), "weight", 1)));
+        KSClassDeclaration callbacks = classDeclaration("com.kronos.sample.Callbacks", ClassKind.OBJECT);
+        KSFunctionDeclaration share = fake(KSFunctionDeclaration.class,
+                "getSimpleName", name("share"),
+                "getParentDeclaration", callbacks,
+                "getFunctionKind", FunctionKind.MEMBER,
+                "getModifiers", EnumSet.noneOf(Modifier.class),
+                "getParameters", Collections.singletonList(fake(KSValueParameter.class,
+                        "getType", reference(type("com.kronos.router.RouterContext", false)))),
+                "getAnnotations", Arrays.asList(annotation("kotlin.jvm.JvmStatic"),
+                        annotation("com.kronos.router.BindRouter",
+                                "urls", Collections.singletonList("https://www.test/share"))));
+        KSClassDeclaration fragment = classDeclaration("com.kronos.sample.UserFragment", ClassKind.CLASS);
+        KSPropertyDeclaration id = property(fragment, "id", type("kotlin.Int", true), Origin.KOTLIN,
+                EnumSet.noneOf(Modifier.class), annotation("kotlin.jvm.JvmField"));
+        KSPropertyDeclaration name = property(fragment, "name", type("kotlin.String", false), Origin.KOTLIN,
+                EnumSet.of(Modifier.LATEINIT), annotation("com.kronos.router.RouterParam", "value", "user_name"));
+
+        process(module, Arrays.<KSAnnotated>asList(activity, share), Arrays.<KSAnnotated>asList(id, name));
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        String init = file("com.kronos.router.init.RouterInit_app.java");
+        assertTrue(init, init.contains("com.kronos.sample.UserActivity"));
+        assertTrue(init, init.contains("https://www.test/user/:id"));
+        assertTrue(init, init.contains("Callbacks.share("));
+        assertTrue(init, init.contains("UserFragment"));
+        assertTrue(files.keySet().toString(), files.containsKey("com.kronos.router.routes.RouterRoutes_app.java"));
+        assertTrue(files.keySet().toString(), files.containsKey("META-INF.proguard.router-app.pro"));
+        String injector = file("com.kronos.sample.UserFragment_RouterInjector.java");
+        assertTrue(injector, injector.contains("getBoxedInt"));
+        assertTrue(injector, injector.contains("getString(bundle, \"user_name\""));
+    }
+
+    @Test
+    public void reportsPropertiesWithoutField() {
+        KSClassDeclaration fragment = classDeclaration("com.kronos.sample.UserFragment", ClassKind.CLASS);
+        KSPropertyDeclaration hidden = property(fragment, "hidden", type("kotlin.String", false), Origin.KOTLIN,
+                EnumSet.noneOf(Modifier.class));
+        KSPropertyDeclaration secret = property(fragment, "secret", type("kotlin.String", false), Origin.KOTLIN,
+                EnumSet.of(Modifier.PRIVATE), annotation("kotlin.jvm.JvmField"));
+
+        process(null, Collections.<KSAnnotated>emptyList(), Arrays.<KSAnnotated>asList(hidden, secret));
+
+        assertEquals(errors.toString(), 2, errors.size());
+        assertTrue(errors.get(0), errors.get(0).contains("UserFragment.hidden"));
+        assertFalse(files.keySet().toString(), files.containsKey("com.kronos.sample.UserFragment_RouterInjector.java"));
+    }
+
+    @Test
+    public void rejectsCallbackWithoutJvmStatic() {
+        KSClassDeclaration module = classDeclaration("com.kronos.sample.AppModule", ClassKind.CLASS,
+                "getAnnotations", Collections.singletonList(annotation("com.kronos.router.BindModule", "value", "app")));
+        KSFunctionDeclaration open = fake(KSFunctionDeclaration.class,
+                "getSimpleName", name("open"),
+                "getParentDeclaration", classDeclaration("com.kronos.sample.Callbacks", ClassKind.OBJECT),
+                "getFunctionKind", FunctionKind.MEMBER,
+                "getModifiers", EnumSet.noneOf(Modifier.class),
+                "getParameters", Collections.singletonList(fake(KSValueParameter.class,
+                        "getType", reference(type("com.kronos.router.RouterContext", false)))),
+                "getAnnotations", Collections.singletonList(annotation("com.kronos.router.BindRouter",
+                        "urls", Collections.singletonList("https://www.test/open"))));
+
+        process(module, Collections.<KSAnnotated>singletonList(open), Collections.<KSAnnotated>emptyList());
+
+        assertEquals(errors.toString(), 1, errors.size());
+        assertTrue(errors.get(0), errors.get(0).contains("Callbacks.open"));
+        assertFalse(file("com.kronos.router.init.RouterInit_app.java").contains("Callbacks.open("));
+    }
+
+    @Test
+    public void mapsKotlinTypesToJava() {
+        assertEquals(TypeName.INT, KotlinTypes.INSTANCE.javaType(type("kotlin.Int", false)));
+        assertEquals(TypeName.INT.box(), KotlinTypes.INSTANCE.javaType(type("kotlin.Int", true)));
+        assertEquals("getInt", KotlinTypes.INSTANCE.readerMethod(type("kotlin.Int", false)));
+        assertEquals("getBoxedLong", KotlinTypes.INSTANCE.readerMethod(type("kotlin.Long", true)));
+        assertEquals("getString", KotlinTypes.INSTANCE.readerMethod(type("kotlin.String", true)));
+        assertNull(KotlinTypes.INSTANCE.readerMethod(type("kotlin.collections.List", false)));
+        assertEquals("java.util.Map<java.lang.String, ? extends java.util.List<?>>",
+                KotlinTypes.INSTANCE.javaType(type("kotlin.collections.Map", false,
+                        argument(Variance.INVARIANT, type("kotlin.String", false)),
+                        argument(Variance.COVARIANT, type("kotlin.collections.List", false,
+                                argument(Variance.STAR, null))))).toString());
+    }
+
+    private static KSPropertyDeclaration property(KSClassDeclaration parent, String name, Object type, Origin origin,
+                                                  EnumSet<Modifier> modifiers, Object... annotations) {
+        List<Object> all = new ArrayList<>(Arrays.asList(annotations));
+        if (all.isEmpty() || !isRouterParam(all)) {
+            all.add(annotation("com.kronos.router.RouterParam"));
+        }
+        return fake(KSPropertyDeclaration.class,
+                "getSimpleName", name(name),
+                "getParentDeclaration", parent,
+                "getType", reference((com.google.devtools.ksp.symbol.KSType) type),
+                "getOrigin", origin,
+                "getModifiers", modifiers,
+                "isMutable", true,
+                "getAnnotations", all);
+    }
+
+    private static boolean isRouterParam(List<Object> annotations) {
+        for (Object annotation : annotations) {
+            if (((com.google.devtools.ksp.symbol.KSAnnotation) annotation).getShortName().asString().equals("RouterParam")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void process(KSClassDeclaration module, List<KSAnnotated> routes, List<KSAnnotated> params) {
+        final Map<String, List<?>> symbols = new HashMap<>();
+        symbols.put("com.kronos.router.BindModule",
+                module != null ? Collections.singletonList(module) : Collections.emptyList());
+        symbols.put("com.kronos.router.BindRouter", routes);
+        symbols.put("com.kronos.router.RouterParam", params);
+        Resolver resolver = (Resolver) java.lang.reflect.Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Resolver.class}, new java.lang.reflect.InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, java.lang.reflect.Method method, Object[] args) {
+                        if (!method.getName().equals("getSymbolsWithAnnotation")) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        return kotlin.collections.CollectionsKt.asSequence(symbols.get((String) args[0]));
+                    }
+                });
+        CodeGenerator codeGenerator = (CodeGenerator) java.lang.reflect.Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{CodeGenerator.class}, new java.lang.reflect.InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, java.lang.reflect.Method method, Object[] args) {
+                        if (!method.getName().equals("createNewFile")) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        assertTrue(args[0] instanceof Dependencies);
+                        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                        String packageName = (String) args[1];
+                        files.put((packageName.isEmpty() ? "" : packageName + ".") + args[2] + "." + args[3], stream);
+                        return (OutputStream) stream;
+                    }
+                });
+        KSPLogger logger = (KSPLogger) java.lang.reflect.Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{KSPLogger.class}, new java.lang.reflect.InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, java.lang.reflect.Method method, Object[] args) {
+                        if (method.getName().equals("error")) {
+                            errors.add((String) args[0]);
+                        }
+                        return null;
+                    }
+                });
+        new RouterSymbolProcessor(codeGenerator, logger).process(resolver);
+    }
+
+    private String file(String name) {
+        ByteArrayOutputStream stream = files.get(name);
+        assertTrue(name + " not in " + files.keySet(), stream != null);
+        return new String(stream.toByteArray(), java.nio.charset.StandardCharsets.UTF_8);
+    }
+}
@@ -2,14 +2,23 @@ package com.kronos.router;
 
 import com.google.auto.service.AutoService;
 import com.google.common.collect.ImmutableSet;
+import com.kronos.router.codegen.InjectModel;
+import com.kronos.router.codegen.ModuleModel;
+import com.kronos.router.codegen.RouteModel;
+import com.kronos.router.codegen.RouterCodeGenerator;
 import com.kronos.router.utils.Logger;
 import com.squareup.javapoet.ClassName;
-import com.squareup.javapoet.JavaFile;
-import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.processing.AbstractProcessor;
@@ -21,15 +30,20 @@ import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
-import javax.lang.model.element.Name;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
 
 @AutoService(Processor.class)
 @SuppressWarnings("NullAway")
 public class RouterProcessor extends AbstractProcessor {
     private Filer filer;
     private Logger logger;
+    private String proguardDir;
 
     @Override
     public synchronized void init(ProcessingEnvironment processingEnv) {
@@ -37,6 +51,7 @@ public class RouterProcessor extends AbstractProcessor {
         Messager messager = processingEnv.getMessager();
         filer = processingEnv.getFiler();
         logger = new Logger(messager);
+        proguardDir = processingEnv.getOptions().get(RouterCodeGenerator.PROGUARD_DIR_OPTION);
         logger.info("start processor");
     }
 
@@ -46,13 +61,14 @@ public class RouterProcessor extends AbstractProcessor {
         Set<String> ret = new HashSet<>();
         ret.add(BindRouter.class.getCanonicalName());
         ret.add(BindModule.class.getCanonicalName());
+        ret.add(RouterParam.class.getCanonicalName());
         return ret;
     }
 
     @Override
     public Set<String> getSupportedOptions() {
         return ImmutableSet.of("com.kronos.router.BindRouter",
-                "com.kronos.router.BindModule");
+                "com.kronos.router.BindModule", RouterCodeGenerator.PROGUARD_DIR_OPTION);
     }
 
     @Override
@@ -63,74 +79,166 @@ public class RouterProcessor extends AbstractProcessor {
 
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Map<TypeElement, InjectModel> injectTargets = collectParams(roundEnv);
+        for (Map.Entry<TypeElement, InjectModel> entry : injectTargets.entrySet()) {
+            InjectModel model = entry.getValue();
+            write(RouterCodeGenerator.injectorName(model.target), RouterCodeGenerator.injector(model)
+                    .addOriginatingElement(entry.getKey()));
+        }
         Set<? extends Element> elements = roundEnv.getElementsAnnotatedWith(BindModule.class);
-        String name;
         for (Element e : elements) {
             BindModule annotation = e.getAnnotation(BindModule.class);
-            name = annotation.value();
-            logger.info("BindModule:" + name);
-            initRouter(name, roundEnv);
+            logger.info("BindModule:" + annotation.value());
+            initRouter(e, new ModuleModel(annotation.value(), annotation.processes()), roundEnv, injectTargets);
         }
         return true;
     }
 
-    private void initRouter(String name, RoundEnvironment roundEnv) {
-        MethodSpec.Builder initMethod = MethodSpec.methodBuilder("init")
-                .addModifiers(Modifier.PUBLIC, Modifier.FINAL, Modifier.STATIC);
-        Set<? extends Element> elements = roundEnv.getElementsAnnotatedWith(BindRouter.class);
-        //一、收集信息
-        int count = 0;
-        for (Element element : elements) {
-            //检查element类型
-            //field type
+    private Map<TypeElement, InjectModel> collectParams(RoundEnvironment roundEnv) {
+        Map<TypeElement, InjectModel> targets = new LinkedHashMap<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(RouterParam.class)) {
+            if (element.getKind() != ElementKind.FIELD) {
+                continue;
+            }
+            if (element.getModifiers().contains(Modifier.PRIVATE)
+                    || element.getModifiers().contains(Modifier.FINAL)
+                    || element.getModifiers().contains(Modifier.STATIC)) {
+                logger.error("@RouterParam field must not be private, final or static: "
+                        + element.getEnclosingElement() + "." + element.getSimpleName()
+                        + " (use @JvmField for kotlin properties)");
+                continue;
+            }
+            TypeElement type = (TypeElement) element.getEnclosingElement();
+            InjectModel model = targets.get(type);
+            if (model == null) {
+                model = new InjectModel(ClassName.get(type));
+                targets.put(type, model);
+            }
+            RouterParam param = element.getAnnotation(RouterParam.class);
+            String fieldName = element.getSimpleName().toString();
+            TypeMirror fieldType = element.asType();
+            model.fields.add(new InjectModel.Field(fieldName,
+                    param.value().isEmpty() ? fieldName : param.value(),
+                    readerMethod(fieldType), TypeName.get(fieldType).box()));
+        }
+        return targets;
+    }
+
+    private String readerMethod(TypeMirror type) {
+        switch (type.getKind()) {
+            case INT:
+                return "getInt";
+            case LONG:
+                return "getLong";
+            case FLOAT:
+                return "getFloat";
+            case DOUBLE:
+                return "getDouble";
+            case BOOLEAN:
+                return "getBoolean";
+            case DECLARED:
+                return declaredReader(type.toString());
+            default:
+                return null;
+        }
+    }
+
+    private String declaredReader(String typeName) {
+        switch (typeName) {
+            case "java.lang.String":
+                return "getString";
+            case "java.lang.Integer":
+                return "getBoxedInt";
+            case "java.lang.Long":
+                return "getBoxedLong";
+            case "java.lang.Float":
+                return "getBoxedFloat";
+            case "java.lang.Double":
+                return "getBoxedDouble";
+            case "java.lang.Boolean":
+                return "getBoxedBoolean";
+            default:
+                return null;
+        }
+    }
+
+    private void initRouter(Element moduleElement, ModuleModel module, RoundEnvironment roundEnv,
+                            Map<TypeElement, InjectModel> injectTargets) {
+        List<Element> originating = new ArrayList<>();
+        originating.add(moduleElement);
+        for (Element element : roundEnv.getElementsAnnotatedWith(BindRouter.class)) {
             BindRouter router = element.getAnnotation(BindRouter.class);
-            ClassName className;
-            Name methodName = null;
             if (element.getKind() == ElementKind.CLASS) {
-                className = ClassName.get((TypeElement) element);
+                ClassName className = ClassName.get((TypeElement) element);
+                module.routes.add(router.isRunnable()
+                        ? RouteModel.callbackClass(className, router.urls(), router.singleton())
+                        : RouteModel.activity(className, router.urls(), router.weight()));
+                originating.add(element);
             } else if (element.getKind() == ElementKind.METHOD) {
-                className = ClassName.get((TypeElement) element.getEnclosingElement());
-                methodName = element.getSimpleName();
+                ExecutableElement method = (ExecutableElement) element;
+                if (!checkCallbackMethod(method)) {
+                    continue;
+                }
+                ClassName owner = ClassName.get((TypeElement) element.getEnclosingElement());
+                module.routes.add(RouteModel.callbackMethod(owner, method.getSimpleName().toString(), router.urls()));
+                originating.add(element.getEnclosingElement());
             } else {
                 throw new IllegalArgumentException("unknow type");
             }
-            //class type
-            String[] id = router.urls();
-            for (String format : id) {
-                int weight = router.weight();
-                if (router.isRunnable()) {
-                    String callbackName = "callBack" + count;
-                    initMethod.addStatement(className + " " + callbackName + "=new " + className + "()");
-                    initMethod.addStatement("com.kronos.router.Router.map($S, " + callbackName + ")", format);
-                    count++;
-                    continue;
-                }
-                if (weight > 0) {
-                    String bundleName = "bundle" + count;
-                    initMethod.addStatement("android.os.Bundle " + bundleName + "=new android.os.Bundle();");
-                    String optionsName = "options" + count;
-                    initMethod.addStatement("com.kronos.router.model.RouterOptions " + optionsName + "=new com.kronos.router.model.RouterOptions("
-                            + bundleName + ")");
-                    initMethod.addStatement(optionsName + ".setWeight(" + weight + ")");
-                    initMethod.addStatement("com.kronos.router.Router.map($S,$T.class," + optionsName + ")",
-                            format, className);
-                } else {
-                    initMethod.addStatement("com.kronos.router.Router.map($S,$T.class)", format, className);
-                }
-                count++;
+        }
+        for (Map.Entry<TypeElement, InjectModel> entry : injectTargets.entrySet()) {
+            module.injectTargets.add(entry.getValue());
+            originating.add(entry.getKey());
+        }
+        TypeSpec.Builder routerMapping = RouterCodeGenerator.moduleInit(module);
+        TypeSpec.Builder routeRefs = RouterCodeGenerator.routeRefs(module);
+        for (Element element : originating) {
+            routerMapping.addOriginatingElement(element);
+            routeRefs.addOriginatingElement(element);
+        }
+        write(RouterCodeGenerator.moduleClass(module.name), routerMapping);
+        write(RouterCodeGenerator.routesClass(module.name), routeRefs);
+        writeProguardRules(module, originating);
+    }
+
+    /**
+     * 写到kapt的classes目录META-INF/proguard下，打成jar发布时R8会自动读取
+     * 本地library模块配置router.proguardDir，再用consumerProguardFiles引用那个目录，见README
+     */
+    private void writeProguardRules(ModuleModel module, List<Element> originating) {
+        try {
+            FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "",
+                    RouterCodeGenerator.proguardRulesPath(module.name), originating.toArray(new Element[0]));
+            try (Writer writer = file.openWriter()) {
+                writer.write(RouterCodeGenerator.proguardRules(module));
+            }
+            if (proguardDir != null && !proguardDir.isEmpty()) {
+                RouterCodeGenerator.writeProguardRules(new File(proguardDir), module);
             }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        String moduleName = "RouterInit_" + name;
-        TypeSpec routerMapping = TypeSpec.classBuilder(moduleName)
-                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
-                .addMethod(initMethod.build())
-                .build();
+    }
+
+    private void write(ClassName name, TypeSpec.Builder type) {
         try {
-            JavaFile.builder("com.kronos.router.init", routerMapping)
-                    .build()
-                    .writeTo(filer);
+            RouterCodeGenerator.javaFile(name, type).writeTo(filer);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    private boolean checkCallbackMethod(ExecutableElement method) {
+        List<? extends VariableElement> parameters = method.getParameters();
+        if (!method.getModifiers().contains(Modifier.STATIC)
+                || method.getModifiers().contains(Modifier.PRIVATE)
+                || parameters.size() != 1
+                || !RouterCodeGenerator.ROUTER_CONTEXT.toString().equals(parameters.get(0).asType().toString())) {
+            logger.error("@BindRouter method must be a non-private static method with a single RouterContext parameter: "
+                    + method.getEnclosingElement() + "." + method.getSimpleName()
+                    + " (use @JvmStatic for kotlin objects)");
+            return false;
+        }
+        return true;
+    }
 }
@@ -0,0 +1,34 @@
+package com.kronos.router.codegen;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.TypeName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一个包含@RouterParam字段的类
+ */
+public class InjectModel {
+    public final ClassName target;
+    public final List<Field> fields = new ArrayList<>();
+
+    public InjectModel(ClassName target) {
+        this.target = target;
+    }
+
+    public static class Field {
+        public final String name;
+        public final String key;
+        // ParamReader里对应的getXxx方法，为null时使用ParamReader.get
+        public final String reader;
+        public final TypeName boxedType;
+
+        public Field(String name, String key, String reader, TypeName boxedType) {
+            this.name = name;
+            this.key = key;
+            this.reader = reader;
+            this.boxedType = boxedType;
+        }
+    }
+}
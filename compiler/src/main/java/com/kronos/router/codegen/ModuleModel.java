@@ -0,0 +1,19 @@
+package com.kronos.router.codegen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一个@BindModule，对应生成的RouterInit_name
+ */
+public class ModuleModel {
+    public final String name;
+    public final String[] processes;
+    public final List<RouteModel> routes = new ArrayList<>();
+    public final List<InjectModel> injectTargets = new ArrayList<>();
+
+    public ModuleModel(String name, String[] processes) {
+        this.name = name;
+        this.processes = processes;
+    }
+}
@@ -0,0 +1,43 @@
+package com.kronos.router.codegen;
+
+import com.squareup.javapoet.ClassName;
+
+/**
+ * 一个@BindRouter声明，kapt和ksp各自解析成这个结构后交给RouterCodeGenerator生成代码
+ */
+public class RouteModel {
+    public enum Kind {
+        ACTIVITY,
+        CALLBACK_CLASS,
+        CALLBACK_METHOD
+    }
+
+    public final Kind kind;
+    public final ClassName owner;
+    // 只有CALLBACK_METHOD才有
+    public final String methodName;
+    public final String[] urls;
+    public final int weight;
+    public final boolean singleton;
+
+    private RouteModel(Kind kind, ClassName owner, String methodName, String[] urls, int weight, boolean singleton) {
+        this.kind = kind;
+        this.owner = owner;
+        this.methodName = methodName;
+        this.urls = urls;
+        this.weight = weight;
+        this.singleton = singleton;
+    }
+
+    public static RouteModel activity(ClassName owner, String[] urls, int weight) {
+        return new RouteModel(Kind.ACTIVITY, owner, null, urls, weight, false);
+    }
+
+    public static RouteModel callbackClass(ClassName owner, String[] urls, boolean singleton) {
+        return new RouteModel(Kind.CALLBACK_CLASS, owner, null, urls, 0, singleton);
+    }
+
+    public static RouteModel callbackMethod(ClassName owner, String methodName, String[] urls) {
+        return new RouteModel(Kind.CALLBACK_METHOD, owner, methodName, urls, 0, false);
+    }
+}
@@ -0,0 +1,395 @@
+package com.kronos.router.codegen;
+
+import com.kronos.router.utils.ChunkedMethod;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Modifier;
+
+/**
+ * RouterInit和RouterInjector的代码生成，kapt和ksp共用，保证两边输出一致
+ * <p>
+ * 返回TypeSpec.Builder，调用方可以再加上originating element之类的信息
+ */
+public class RouterCodeGenerator {
+    public static final String INIT_PACKAGE = "com.kronos.router.init";
+    // 不能放在init包下，AutoRegister会把init包下的类都当成模块
+    public static final String ROUTES_PACKAGE = "com.kronos.router.routes";
+    // 处理器参数，配置后keep规则额外写一份到这个目录，给consumerProguardFiles用
+    public static final String PROGUARD_DIR_OPTION = "router.proguardDir";
+
+    private static final ClassName BUNDLE = ClassName.get("android.os", "Bundle");
+    private static final ClassName PARAM_INJECTOR = ClassName.get("com.kronos.router", "ParamInjector");
+    private static final ClassName PARAM_READER = ClassName.get("com.kronos.router.utils", "ParamReader");
+    private static final ClassName ROUTER_INJECT = ClassName.get("com.kronos.router", "RouterInject");
+    private static final ClassName ROUTER_CALLBACK = ClassName.get("com.kronos.router", "RouterCallback");
+    public static final ClassName ROUTER_CONTEXT = ClassName.get("com.kronos.router", "RouterContext");
+    private static final ClassName ROUTER_CALLBACK_FACTORY = ClassName.get("com.kronos.router", "RouterCallbackFactory");
+    private static final ClassName ROUTER = ClassName.get("com.kronos.router", "Router");
+    private static final ClassName ROUTER_OPTIONS = ClassName.get("com.kronos.router.model", "RouterOptions");
+    private static final ClassName PROCESS_UTILS = ClassName.get("com.kronos.router.utils", "ProcessUtils");
+    private static final ClassName LAZY_ROUTER_CALLBACK = ClassName.get("com.kronos.router", "LazyRouterCallback");
+    private static final ClassName ROUTE_REF = ClassName.get("com.kronos.router", "RouteRef");
+    // 每个routesN方法最多写这么多条语句
+    private static final int MAX_STATEMENTS_PER_METHOD = 100;
+
+    public static ClassName moduleClass(String name) {
+        return ClassName.get(INIT_PACKAGE, "RouterInit_" + name);
+    }
+
+    public static ClassName routesClass(String name) {
+        return ClassName.get(ROUTES_PACKAGE, "RouterRoutes_" + name);
+    }
+
+    public static ClassName injectorName(ClassName target) {
+        return ClassName.get(target.packageName(),
+                String.join("_", target.simpleNames()) + "_RouterInjector");
+    }
+
+    public static JavaFile javaFile(ClassName name, TypeSpec.Builder type) {
+        return JavaFile.builder(name.packageName(), type.build()).build();
+    }
+
+    public static TypeSpec.Builder injector(InjectModel model) {
+        MethodSpec.Builder injectMethod = MethodSpec.methodBuilder("inject")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(model.target, "target")
+                .addParameter(BUNDLE, "bundle");
+        for (InjectModel.Field field : model.fields) {
+            if (field.reader != null) {
+                injectMethod.addStatement("target.$N = $T.$N(bundle, $S, target.$N)",
+                        field.name, PARAM_READER, field.reader, field.key, field.name);
+            } else {
+                injectMethod.addStatement("target.$N = $T.<$T>get(bundle, $S, target.$N)",
+                        field.name, PARAM_READER, field.boxedType, field.key, field.name);
+            }
+        }
+        return TypeSpec.classBuilder(injectorName(model.target))
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addSuperinterface(ParameterizedTypeName.get(PARAM_INJECTOR, model.target))
+                .addMethod(injectMethod.build());
+    }
+
+    public static TypeSpec.Builder moduleInit(ModuleModel module) {
+        ClassName moduleClass = moduleClass(module.name);
+        TypeSpec.Builder routerMapping = TypeSpec.classBuilder(moduleClass)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL);
+        MethodSpec.Builder initMethod = MethodSpec.methodBuilder("init")
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL, Modifier.STATIC);
+        if (module.processes.length > 0) {
+            // 不在声明的进程里时直接跳过整个模块
+            initMethod.beginControlFlow("if (!$T.isCurrentProcess(new String[]{$L}))", PROCESS_UTILS,
+                    stringArray(module.processes))
+                    .addStatement("return")
+                    .endControlFlow();
+        }
+        ChunkedMethod routesMethod = new ChunkedMethod("routes", MAX_STATEMENTS_PER_METHOD);
+        Set<String> hosts = new LinkedHashSet<>();
+        int count = 0;
+        int callbackCount = 0;
+        for (RouteModel route : module.routes) {
+            String callbackName = null;
+            // 回调变量和它的map语句必须在同一个方法里
+            routesMethod.beginGroup();
+            if (route.kind == RouteModel.Kind.CALLBACK_CLASS) {
+                // 回调只注册工厂，第一次open的时候才会加载并创建
+                ClassName factory = callbackClass(moduleClass, route, callbackCount);
+                routerMapping.addType(callbackFactory(factory, route.owner));
+                callbackName = "callBack" + callbackCount;
+                routesMethod.addStatement("$T $N = new $T(new $T(), $L, $S)", ROUTER_CALLBACK, callbackName,
+                        LAZY_ROUTER_CALLBACK, factory, route.singleton, route.owner.reflectionName());
+                callbackCount++;
+            } else if (route.kind == RouteModel.Kind.CALLBACK_METHOD) {
+                // 静态方法直接生成调用桩，不需要创建目标对象
+                ClassName stub = callbackClass(moduleClass, route, callbackCount);
+                routerMapping.addType(methodCallback(stub, route.owner, route.methodName));
+                callbackName = "callBack" + callbackCount;
+                routesMethod.addStatement("$T $N = new $T()", ROUTER_CALLBACK, callbackName, stub);
+                callbackCount++;
+            }
+            for (String format : route.urls) {
+                hosts.add(hostOf(format));
+                if (callbackName != null) {
+                    routesMethod.addStatement("$T.map($S, $N)", ROUTER, format, callbackName);
+                    continue;
+                }
+                if (route.weight > 0) {
+                    String optionsName = "options" + count;
+                    routesMethod.addStatement("$T $N = new $T()", ROUTER_OPTIONS, optionsName, ROUTER_OPTIONS);
+                    routesMethod.addStatement("$N.setWeight($L)", optionsName, route.weight);
+                    routesMethod.addStatement("$T.map($S, $S, $N)", ROUTER, format,
+                            route.owner.reflectionName(), optionsName);
+                } else {
+                    // 只写类名，避免注册时加载所有Activity
+                    routesMethod.addStatement("$T.map($S, $S)", ROUTER, format, route.owner.reflectionName());
+                }
+                count++;
+            }
+        }
+        for (InjectModel inject : module.injectTargets) {
+            routesMethod.beginGroup();
+            // 和路由一样只写类名，第一次inject时才加载目标类和injector
+            routesMethod.addStatement("$T.register($S, $S)", ROUTER_INJECT,
+                    inject.target.reflectionName(), injectorName(inject.target).reflectionName());
+        }
+        // 模块声明自己负责的host，并行初始化时open只需要等待对应的模块
+        initMethod.addStatement("$T.registerModule($S, HOSTS, $L)", ROUTER, module.name,
+                TypeSpec.anonymousClassBuilder("")
+                        .addSuperinterface(Runnable.class)
+                        .addMethod(MethodSpec.methodBuilder("run")
+                                .addAnnotation(Override.class)
+                                .addModifiers(Modifier.PUBLIC)
+                                .addStatement("routes()")
+                                .build())
+                        .build());
+        routerMapping.addField(FieldSpec.builder(String[].class, "HOSTS",
+                Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer("{$L}", stringArray(hosts.toArray(new String[0])))
+                .build());
+        routesMethod.writeTo(routerMapping);
+        routerMapping.addMethod(initMethod.build());
+        return routerMapping;
+    }
+
+    public static String proguardRulesPath(String name) {
+        return "META-INF/proguard/" + proguardRulesFileName(name);
+    }
+
+    public static String proguardRulesFileName(String name) {
+        return "router-" + name + ".pro";
+    }
+
+    /**
+     * 写到PROGUARD_DIR_OPTION指定的目录，和variant无关
+     * 多个variant的kapt可能并行跑，先写临时文件再rename；内容没变就不动文件，免得下游任务重跑
+     */
+    public static void writeProguardRules(File dir, ModuleModel module) throws IOException {
+        byte[] content = proguardRules(module).getBytes(StandardCharsets.UTF_8);
+        Path target = new File(dir, proguardRulesFileName(module.name)).toPath();
+        if (Files.isRegularFile(target) && Arrays.equals(Files.readAllBytes(target), content)) {
+            return;
+        }
+        Files.createDirectories(dir.toPath());
+        Path temp = Files.createTempFile(dir.toPath(), proguardRulesFileName(module.name), ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 只keep路由快照按类名恢复的回调和injector
+     * Activity在manifest里声明过，aapt生成的规则已经keep住了；RouterInit_*和RouterRoutes_*都是直接调用，不需要keep
+     */
+    public static String proguardRules(ModuleModel module) {
+        ClassName moduleClass = moduleClass(module.name);
+        Set<String> restored = new LinkedHashSet<>();
+        int callbackCount = 0;
+        for (RouteModel route : module.routes) {
+            if (route.kind != RouteModel.Kind.ACTIVITY) {
+                restored.add(callbackClass(moduleClass, route, callbackCount++).reflectionName());
+            }
+        }
+        for (InjectModel inject : module.injectTargets) {
+            restored.add(injectorName(inject.target).reflectionName());
+        }
+        StringBuilder rules = new StringBuilder()
+                .append("# Generated by RouterProcessor for module ").append(module.name).append(", do not edit.\n");
+        if (!restored.isEmpty()) {
+            rules.append("\n# Callbacks and injectors restored by name from the route snapshot\n");
+            for (String name : restored) {
+                rules.append("-keep class ").append(name).append(" { <init>(); }\n");
+            }
+        }
+        return rules.toString();
+    }
+
+    /**
+     * 每个url模板生成一个RouteRef常量和两个拼url的方法，路径参数按模板里的类型生成参数
+     * ":id"和":id{long}"是long，":name{string}"是String
+     */
+    public static TypeSpec.Builder routeRefs(ModuleModel module) {
+        TypeSpec.Builder routes = TypeSpec.classBuilder(routesClass(module.name))
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build());
+        Set<String> methods = new HashSet<>();
+        for (RouteModel route : module.routes) {
+            String base = upperSnake(route.owner.simpleName());
+            if (route.methodName != null) {
+                base += "_" + upperSnake(route.methodName);
+            }
+            for (String url : route.urls) {
+                // 同一个类的多个url依次加上_1、_2
+                String constant = base;
+                for (int index = 1; !methods.add(lowerCamel(constant)); index++) {
+                    constant = base + "_" + index;
+                }
+                UrlTemplate template = UrlTemplate.parse(url);
+                routes.addField(FieldSpec.builder(ROUTE_REF, constant,
+                        Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("new $T($S, $S, $S, new String[]{$L}, new String[]{$L})", ROUTE_REF,
+                                url, hostOf(url), template.path,
+                                stringArray(template.literals.toArray(new String[0])),
+                                stringArray(template.params.toArray(new String[0])))
+                        .build());
+                addUrlMethods(routes, lowerCamel(constant), template);
+            }
+        }
+        return routes;
+    }
+
+    private static void addUrlMethods(TypeSpec.Builder routes, String name, UrlTemplate template) {
+        MethodSpec.Builder append = MethodSpec.methodBuilder(name)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .returns(StringBuilder.class)
+                .addParameter(StringBuilder.class, "builder");
+        MethodSpec.Builder build = MethodSpec.methodBuilder(name)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .returns(String.class);
+        CodeBlock.Builder args = CodeBlock.builder().add("$T.builder()", ROUTE_REF);
+        append.addStatement("builder.append($S)", template.literals.get(0));
+        for (int i = 0; i < template.params.size(); i++) {
+            String param = javaName(template.params.get(i));
+            if (template.numeric.get(i)) {
+                append.addParameter(long.class, param);
+                append.addStatement("builder.append($N)", param);
+            } else {
+                append.addParameter(String.class, param);
+                append.addStatement("$T.appendSegment(builder, $N)", ROUTE_REF, param);
+            }
+            String literal = template.literals.get(i + 1);
+            if (!literal.isEmpty()) {
+                append.addStatement("builder.append($S)", literal);
+            }
+            build.addParameter(template.numeric.get(i) ? TypeName.LONG : ClassName.get(String.class), param);
+            args.add(", $N", param);
+        }
+        append.addStatement("return builder");
+        build.addStatement("return $N($L).toString()", name, args.build());
+        routes.addMethod(append.build());
+        routes.addMethod(build.build());
+    }
+
+    private static String javaName(String param) {
+        String name = param.replaceAll("[^A-Za-z0-9_$]", "_");
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            name = "_" + name;
+        }
+        if (SourceVersion.isKeyword(name) || name.equals("builder")) {
+            name += "_";
+        }
+        return name;
+    }
+
+    static String upperSnake(String name) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c) && i > 0 && !Character.isUpperCase(name.charAt(i - 1))) {
+                builder.append('_');
+            }
+            builder.append(Character.isLetterOrDigit(c) ? Character.toUpperCase(c) : '_');
+        }
+        return builder.toString();
+    }
+
+    static String lowerCamel(String constant) {
+        StringBuilder builder = new StringBuilder();
+        boolean upper = false;
+        for (int i = 0; i < constant.length(); i++) {
+            char c = constant.charAt(i);
+            if (c == '_') {
+                upper = builder.length() > 0;
+                continue;
+            }
+            builder.append(upper ? c : Character.toLowerCase(c));
+            upper = false;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 和android.net.Uri.getHost()保持一致，模板里有{string}之类的写法，不能用java.net.URI解析
+     */
+    public static String hostOf(String url) {
+        int start = url.indexOf("://");
+        if (start < 0) {
+            return "";
+        }
+        start += 3;
+        int end = start;
+        while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0) {
+            end++;
+        }
+        String authority = url.substring(start, end);
+        int userInfo = authority.lastIndexOf('@');
+        if (userInfo >= 0) {
+            authority = authority.substring(userInfo + 1);
+        }
+        int port = authority.lastIndexOf(':');
+        if (port >= 0 && !authority.endsWith("]")) {
+            authority = authority.substring(0, port);
+        }
+        return authority;
+    }
+
+    private static CodeBlock stringArray(String[] values) {
+        CodeBlock.Builder builder = CodeBlock.builder();
+        for (int i = 0; i < values.length; i++) {
+            builder.add(i == 0 ? "$S" : ", $S", values[i]);
+        }
+        return builder.build();
+    }
+
+    private static ClassName callbackClass(ClassName moduleClass, RouteModel route, int index) {
+        return moduleClass.nestedClass((route.kind == RouteModel.Kind.CALLBACK_CLASS
+                ? "CallbackFactory" : "MethodCallback") + index);
+    }
+
+    private static TypeSpec callbackFactory(ClassName factory, ClassName callback) {
+        return TypeSpec.classBuilder(factory)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .addSuperinterface(ROUTER_CALLBACK_FACTORY)
+                .addMethod(MethodSpec.methodBuilder("create")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(ROUTER_CALLBACK)
+                        .addStatement("return new $T()", callback)
+                        .build())
+                .build();
+    }
+
+    private static TypeSpec methodCallback(ClassName stub, ClassName owner, String methodName) {
+        return TypeSpec.classBuilder(stub)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .addSuperinterface(ROUTER_CALLBACK)
+                .addMethod(MethodSpec.methodBuilder("run")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(ROUTER_CONTEXT, "context")
+                        .addStatement("$T.$N(context)", owner, methodName)
+                        .build())
+                .build();
+    }
+}
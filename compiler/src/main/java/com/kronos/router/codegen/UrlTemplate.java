@@ -0,0 +1,63 @@
+package com.kronos.router.codegen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 编译期把url模板拆成字面量和路径参数，规则和运行时的RouterUtils.urlToParamsMap一致
+ */
+class UrlTemplate {
+    private static final Pattern UNIT = Pattern.compile("\\{(.*)\\}");
+
+    // 和Uri.getPath()一致，作为路由表里的key
+    final String path;
+    // 比params多一个
+    final List<String> literals = new ArrayList<>();
+    final List<String> params = new ArrayList<>();
+    final List<Boolean> numeric = new ArrayList<>();
+
+    private UrlTemplate(String path) {
+        this.path = path;
+    }
+
+    static UrlTemplate parse(String url) {
+        int authority = url.indexOf("://");
+        int pathStart = url.indexOf('/', authority < 0 ? 0 : authority + 3);
+        int pathEnd = url.length();
+        for (int i = Math.max(pathStart, 0); i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '?' || c == '#') {
+                pathEnd = i;
+                break;
+            }
+        }
+        if (pathStart < 0 || pathStart > pathEnd) {
+            pathStart = pathEnd;
+        }
+        UrlTemplate template = new UrlTemplate(url.substring(pathStart, pathEnd));
+        StringBuilder literal = new StringBuilder(url.substring(0, pathStart));
+        String[] segments = template.path.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (i > 0) {
+                literal.append('/');
+            }
+            if (segment.length() > 1 && segment.charAt(0) == ':') {
+                String key = segment.substring(1);
+                Matcher matcher = UNIT.matcher(key);
+                String unit = matcher.find() ? matcher.group(0) : "{long}";
+                template.literals.add(literal.toString());
+                template.params.add(key.replace(unit, ""));
+                template.numeric.add(!"{string}".equals(unit));
+                literal.setLength(0);
+            } else {
+                literal.append(segment);
+            }
+        }
+        literal.append(url.substring(pathEnd));
+        template.literals.add(literal.toString());
+        return template;
+    }
+}
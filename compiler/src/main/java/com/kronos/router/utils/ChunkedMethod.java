@@ -0,0 +1,61 @@
+package com.kronos.router.utils;
+
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.element.Modifier;
+
+/**
+ * 把大量注册语句拆到多个static方法里，避免单个方法超过64KB或者太大不能被JIT编译
+ * <p>
+ * 同一个group里的语句会写进同一个方法，局部变量可以在group内共用
+ */
+public class ChunkedMethod {
+    private final String name;
+    private final int maxStatements;
+    private final List<MethodSpec.Builder> chunks = new ArrayList<>();
+    private MethodSpec.Builder current;
+    private int statements;
+
+    public ChunkedMethod(String name, int maxStatements) {
+        this.name = name;
+        this.maxStatements = maxStatements;
+    }
+
+    /**
+     * 开始新的一组语句，当前方法已经写满时换到下一个方法
+     */
+    public void beginGroup() {
+        if (current == null || statements >= maxStatements) {
+            current = MethodSpec.methodBuilder(name + chunks.size())
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC);
+            chunks.add(current);
+            statements = 0;
+        }
+    }
+
+    public void addStatement(String format, Object... args) {
+        if (current == null) {
+            beginGroup();
+        }
+        current.addStatement(format, args);
+        statements++;
+    }
+
+    /**
+     * 生成入口方法name()依次调用所有分块，分块方法一起加到type里
+     */
+    public void writeTo(TypeSpec.Builder type) {
+        MethodSpec.Builder entry = MethodSpec.methodBuilder(name)
+                .addModifiers(Modifier.STATIC);
+        for (MethodSpec.Builder chunk : chunks) {
+            MethodSpec method = chunk.build();
+            entry.addStatement("$N()", method);
+            type.addMethod(method);
+        }
+        type.addMethod(entry.build());
+    }
+}
@@ -4,6 +4,8 @@ import android.app.Activity;
 import android.os.Bundle;
 
 import com.kronos.router.BindRouter;
+import com.kronos.router.RouterInject;
+import com.kronos.router.RouterParam;
 
 /**
  * Created by zhangyang on 16/7/16.
@@ -11,11 +13,16 @@ import com.kronos.router.BindRouter;
 @BindRouter(urls = {"https://www.baidu.com/:id{string}/:nid{long}"})
 public class TestActivity extends Activity {
     //  TextView testTv;
+    @RouterParam
+    String id;
+    @RouterParam("nid")
+    long newsId;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.second_activity_test);
+        RouterInject.inject(this, getIntent());
         String name = getIntent().getStringExtra("string");
         //  testTv.setText(name);
     }